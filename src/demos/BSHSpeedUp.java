@@ -2,6 +2,7 @@ package demos;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.SphericalAgent;
@@ -9,12 +10,14 @@ import robot.input.SphericalAgentDescription;
 import robot.planning.multiagentgraph.MultiAgentGraph;
 import robot.sensing.BSHConfigurationSpace;
 import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeValidityCache;
+import robot.sensing.GridConfigurationSpace;
 import robot.sensing.PlainConfigurationSpace;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class BSHSpeedUp extends PApplet {
+public class BSHSpeedUp extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 200;
@@ -29,7 +32,10 @@ public class BSHSpeedUp extends PApplet {
     List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
     ConfigurationSpace bshConfigurationSpace;
     ConfigurationSpace plainConfigurationSpace;
+    ConfigurationSpace gridConfigurationSpace;
     MultiAgentGraph graph;
+    // Shared by roadmap rebuilds, results are kept separately for each configuration space
+    EdgeValidityCache edgeValidityCache;
 
     QueasyCam cam;
 
@@ -37,6 +43,7 @@ public class BSHSpeedUp extends PApplet {
     static String DATA_STRUCTURE = "";
     static long DATA_STRUCTURE_CREATION_TIME = 0;
     static long EDGE_CULLING_TIME = 0;
+    static final int EDGE_VALIDITY_CACHE_CAPACITY = 1 << 22;
 
     public void settings() {
         size(WIDTH, HEIGHT, P3D);
@@ -78,17 +85,24 @@ public class BSHSpeedUp extends PApplet {
         );
         // configuration spaces
         long start = millis();
-        plainConfigurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescription, sphericalObstacles);
+        plainConfigurationSpace = new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
         long plain = millis();
-        bshConfigurationSpace = new BSHConfigurationSpace(this, sphericalAgentDescription, sphericalObstacles);
+        bshConfigurationSpace = new BSHConfigurationSpace(this, this, sphericalAgentDescription, sphericalObstacles);
         long bsh = millis();
+        gridConfigurationSpace = new GridConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
+        long grid = millis();
         PApplet.println("Plain config space creation time: " + (plain - start) + " ms");
         PApplet.println("BSH config space creation time: " + (bsh - plain) + " ms");
+        PApplet.println("Grid config space creation time: " + (grid - bsh) + " ms");
+        plainConfigurationSpace.enableInstrumentation();
+        bshConfigurationSpace.enableInstrumentation();
+        gridConfigurationSpace.enableInstrumentation();
 
         // graph
         graph = new MultiAgentGraph(this, startPosition, finishPosition);
+        edgeValidityCache = new EdgeValidityCache(EDGE_VALIDITY_CACHE_CAPACITY);
         // spherical agent
-        sphericalAgent = new SphericalAgent(this, sphericalAgentDescription, bshConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, bshConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
 
         // vertex sampling
         graph.generateVertices(sphericalAgent.samplePoints(7000), bshConfigurationSpace);
@@ -97,22 +111,40 @@ public class BSHSpeedUp extends PApplet {
 
     private void resetPlain() {
         DATA_STRUCTURE = "Plain";
-        sphericalAgent = new SphericalAgent(this, sphericalAgentDescription, plainConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, plainConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
         long configSpace = millis();
         graph.clearAdjacenciesOnlyUseInBSHSpeedUp();
-        graph.generateAdjacencies(30, plainConfigurationSpace);
+        graph.generateAdjacencies(30, plainConfigurationSpace, edgeValidityCache);
         long edge = millis();
         EDGE_CULLING_TIME = edge - configSpace;
+        printQueryStats(plainConfigurationSpace);
     }
 
     private void resetBSH() {
         DATA_STRUCTURE = "BSH";
-        sphericalAgent = new SphericalAgent(this, sphericalAgentDescription, bshConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, bshConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
         long configSpace = millis();
         graph.clearAdjacenciesOnlyUseInBSHSpeedUp();
-        graph.generateAdjacencies(30, bshConfigurationSpace);
+        graph.generateAdjacencies(30, bshConfigurationSpace, edgeValidityCache);
         long edge = millis();
         EDGE_CULLING_TIME = edge - configSpace;
+        printQueryStats(bshConfigurationSpace);
+    }
+
+    private void resetGrid() {
+        DATA_STRUCTURE = "Grid";
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, gridConfigurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        long configSpace = millis();
+        graph.clearAdjacenciesOnlyUseInBSHSpeedUp();
+        graph.generateAdjacencies(30, gridConfigurationSpace, edgeValidityCache);
+        long edge = millis();
+        EDGE_CULLING_TIME = edge - configSpace;
+        printQueryStats(gridConfigurationSpace);
+    }
+
+    private void printQueryStats(ConfigurationSpace configurationSpace) {
+        PApplet.println(DATA_STRUCTURE + " " + configurationSpace.stats().summary());
+        configurationSpace.stats().reset();
     }
 
     public void draw() {
@@ -160,6 +192,10 @@ public class BSHSpeedUp extends PApplet {
             resetPlain();
             sphericalAgent.setPath(graph.weightedAStar(1.5f));
         }
+        if (key == 'n') {
+            resetGrid();
+            sphericalAgent.setPath(graph.weightedAStar(1.5f));
+        }
         if (key == 'g') {
             BSHConfigurationSpace.DRAW_BOUNDING_SPHERES = !BSHConfigurationSpace.DRAW_BOUNDING_SPHERES;
         }
@@ -0,0 +1,92 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeBatch;
+import robot.sensing.GridConfigurationSpace;
+import robot.sensing.PlainConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Compares edge checks one at a time against ConfigurationSpace.checkEdges, serial and parallel
+// java -cp "build/:jars/*" demos.BatchedEdgeChecks
+public class BatchedEdgeChecks {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 300;
+    public static final int NUM_VERTICES = 4000;
+    public static final int NUM_EDGES_PER_VERTEX = 64;
+    public static final float MAX_EDGE_LEN = 10f;
+    public static final int NUM_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE, 0.5f, 2f);
+        SphericalAgentDescription sphericalAgentDescription = HeadlessScene.crossingAgent(SIDE, 1f);
+
+        // Edges leave each vertex in turn, like candidate edges of a roadmap
+        List<Vec3> starts = new ArrayList<>();
+        List<Vec3> ends = new ArrayList<>();
+        EdgeBatch batch = new EdgeBatch();
+        for (int i = 0; i < NUM_VERTICES; i++) {
+            Vec3 vertex = HeadlessScene.point(random, SIDE);
+            for (int j = 0; j < NUM_EDGES_PER_VERTEX; j++) {
+                Vec3 end = vertex.plus(HeadlessScene.point(random, MAX_EDGE_LEN));
+                starts.add(vertex);
+                ends.add(end);
+                batch.add(vertex, end);
+            }
+        }
+
+        measure("Plain", new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles), starts, ends, batch);
+        measure("BSH", new BSHConfigurationSpace(Canvas.HEADLESS, random, sphericalAgentDescription, sphericalObstacles), starts, ends, batch);
+        measure("Grid", new GridConfigurationSpace(sphericalAgentDescription, sphericalObstacles), starts, ends, batch);
+    }
+
+    private static void measure(String name, ConfigurationSpace configurationSpace, List<Vec3> starts, List<Vec3> ends, EdgeBatch batch) {
+        BitSet expected = new BitSet(starts.size());
+        long singleNanos = HeadlessScene.bestNanos(NUM_ROUNDS, () -> {
+            for (int i = 0; i < starts.size(); i++) {
+                if (configurationSpace.doesEdgeIntersectSomeObstacle(starts.get(i), ends.get(i))) {
+                    expected.set(i);
+                }
+            }
+        });
+
+        long[] batchedNanos = new long[2];
+        BitSet[] invalid = new BitSet[2];
+        boolean wasParallel = ConfigurationSpace.PARALLEL_EDGE_CHECKS;
+        try {
+            for (int parallel = 0; parallel < 2; parallel++) {
+                ConfigurationSpace.PARALLEL_EDGE_CHECKS = parallel == 1;
+                final int p = parallel;
+                batchedNanos[parallel] = HeadlessScene.bestNanos(NUM_ROUNDS, () -> invalid[p] = batch.check(configurationSpace));
+            }
+        } finally {
+            ConfigurationSpace.PARALLEL_EDGE_CHECKS = wasParallel;
+        }
+
+        System.out.println(name + ": #edges = " + starts.size() + ", #invalid = " + expected.cardinality()
+                + ", mismatches = " + (mismatches(expected, invalid[0]) + mismatches(expected, invalid[1])));
+        System.out.println("  one at a time: " + edgesPerSecond(starts.size(), singleNanos) + " M edges/s");
+        System.out.println("  batched serial: " + edgesPerSecond(starts.size(), batchedNanos[0]) + " M edges/s");
+        System.out.println("  batched parallel: " + edgesPerSecond(starts.size(), batchedNanos[1]) + " M edges/s");
+    }
+
+    private static int mismatches(BitSet expected, BitSet actual) {
+        BitSet difference = (BitSet) expected.clone();
+        difference.xor(actual);
+        return difference.cardinality();
+    }
+
+    private static float edgesPerSecond(int numEdges, long nanos) {
+        return numEdges * 1000f / nanos;
+    }
+}
@@ -0,0 +1,138 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.planning.replanninggraph.ReplanningGraph;
+import robot.planning.replanninggraph.Vertex;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.PlainConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+// Number of vertices UCS, A* and bidirectional A* expand on the corridor scenes of ttc.Bottleneck (every agent,
+// on a MultiAgentGraph) and unknownterrain.ZigZag (on a ReplanningGraph with all obstacles sensed), and the path lengths they find
+// java -cp "build/:jars/*" demos.BidirectionalSearch
+public class BidirectionalSearch {
+    public static final int SIDE = 100;
+
+    public static void main(String[] args) {
+        boolean wasLoggingMultiAgentGraph = MultiAgentGraph.LOG_SEARCHES;
+        boolean wasLoggingReplanningGraph = ReplanningGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            ReplanningGraph.LOG_SEARCHES = false;
+            bottleneck();
+            zigZag();
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLoggingMultiAgentGraph;
+            ReplanningGraph.LOG_SEARCHES = wasLoggingReplanningGraph;
+        }
+    }
+
+    private static void bottleneck() {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+        placeObstacles(canvas, sphericalObstacles, -20, 0.70f);
+        placeObstacles(canvas, sphericalObstacles, -32, 0.75f);
+        sphericalObstacles.add(new SphericalObstacle(canvas, Vec3.of(0, 0, 50), 20, Vec3.of(1, 0, 1)));
+        List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
+        float agentRadius = 1f;
+        float slack = 2f;
+        int gridSize = 12;
+        for (int i = 0; i < gridSize; i++) {
+            for (int j = 0; j < gridSize; j++) {
+                sphericalAgentDescriptions.add(new SphericalAgentDescription(
+                        Vec3.of(0, 0, -SIDE).plus(Vec3.of(0, (2f + slack) * agentRadius * j, (2f + slack) * agentRadius * i)),
+                        Vec3.of(0, -SIDE + 10, SIDE - 10),
+                        agentRadius
+                ));
+            }
+        }
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
+        MultiAgentGraph graph = HeadlessScene.roadmap(sphericalAgentDescriptions, HeadlessScene.points(random, 10000, SIDE), 20f, configurationSpace);
+
+        System.out.println("Bottleneck, " + sphericalAgentDescriptions.size() + " agents");
+        report("UCS", sphericalAgentDescriptions.size(), graph::ucs, graph::numVerticesExplored);
+        report("A*", sphericalAgentDescriptions.size(), graph::aStar, graph::numVerticesExplored);
+        report("Bidirectional A*", sphericalAgentDescriptions.size(), graph::bidirectionalAStar, graph::numVerticesExplored);
+    }
+
+    private static void placeObstacles(Canvas canvas, List<SphericalObstacle> sphericalObstacles, int yOffset, float hole) {
+        float obstacleRadius = SIDE * 0.085f;
+        int numPerLine = (int) (SIDE / obstacleRadius) + 1;
+        int holeIndex = (int) (numPerLine * hole);
+        for (int i = -1; i < numPerLine + 1; i++) {
+            if (i == holeIndex) {
+                continue;
+            }
+            sphericalObstacles.add(new SphericalObstacle(
+                    canvas,
+                    Vec3.of(0, yOffset, -(SIDE - 2 * obstacleRadius * i)),
+                    obstacleRadius,
+                    Vec3.of(1, 0, 1)
+            ));
+        }
+    }
+
+    private static void zigZag() {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+        final Vec3 startPosition = Vec3.of(0, SIDE * 0.9f, SIDE * -0.9f);
+        final Vec3 finishPosition = Vec3.of(0, SIDE * -0.9f, SIDE * 0.9f);
+
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+        float obstacleRadius = SIDE * 0.04f;
+        for (int i = 0; i < 15; i++) {
+            for (int j = 0; j < 4; j++) {
+                float zCoordinate = (SIDE - 2 * obstacleRadius * i) * (j % 2 == 1 ? -1 : 1);
+                sphericalObstacles.add(new SphericalObstacle(
+                        canvas,
+                        Vec3.of(0, -SIDE + 30 * j + 30, zCoordinate),
+                        obstacleRadius,
+                        Vec3.of(1, 0, 1)
+                ));
+            }
+        }
+        SphericalAgentDescription sphericalAgentDescription = new SphericalAgentDescription(startPosition, finishPosition, SIDE * (0.5f / 20));
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
+        ReplanningGraph graph = new ReplanningGraph(canvas, startPosition, finishPosition);
+        graph.generateGraph(HeadlessScene.points(random, 5000, SIDE), 5);
+        // Sense the whole scene, so that searches see every obstacle
+        graph.senseAndUpdate(Vec3.of(0), 4 * SIDE, configurationSpace);
+
+        System.out.println("ZigZag");
+        reportVertices("UCS", () -> graph.ucs(graph.start), graph);
+        reportVertices("A*", () -> graph.aStar(graph.start), graph);
+        reportVertices("Bidirectional A*", () -> graph.bidirectionalAStar(graph.start), graph);
+    }
+
+    private static void report(String name, int numAgents, IntFunction<List<Vec3>> search, IntSupplier numVerticesExplored) {
+        int totalExplored = 0;
+        float totalLength = 0;
+        for (int i = 0; i < numAgents; i++) {
+            List<Vec3> path = search.apply(i);
+            totalExplored += numVerticesExplored.getAsInt();
+            totalLength += HeadlessScene.length(path);
+        }
+        System.out.println("  " + name + ": # vertices explored " + totalExplored + ", total path length " + totalLength);
+    }
+
+    private static void reportVertices(String name, Supplier<List<Vertex>> search, ReplanningGraph graph) {
+        List<Vertex> path = search.get();
+        List<Vec3> positions = new ArrayList<>();
+        for (Vertex vertex : path) {
+            positions.add(vertex.position);
+        }
+        System.out.println("  " + name + ": # vertices explored " + graph.numVerticesExplored() + ", path length " + HeadlessScene.length(positions));
+    }
+}
@@ -0,0 +1,85 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.LineSegment2DAgentDescription;
+import robot.input.SphericalAgentDescription;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.DistanceFieldConfigurationSpace;
+import robot.sensing.GridConfigurationSpace;
+import robot.sensing.LineSegment2DConfigurationSpace;
+import robot.sensing.PlainConfigurationSpace;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// Measures heap bytes allocated per vertex / edge query of each configuration space, should print 0
+// java -cp "build/:jars/*" demos.CollisionQueryAllocations
+public class CollisionQueryAllocations {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 500;
+    public static final int NUM_QUERIES = 100000;
+    public static final int NUM_WARMUP_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE, 1, 5);
+        SphericalAgentDescription sphericalAgentDescription = HeadlessScene.crossingAgent(SIDE, 1f);
+        LineSegment2DAgentDescription lineSegment2DAgentDescription = new LineSegment2DAgentDescription(
+                sphericalAgentDescription.startPosition,
+                sphericalAgentDescription.finishPosition,
+                5f
+        );
+
+        // Queries are generated up front so that only the configuration space allocates inside the measured loop
+        Vec3[] starts = new Vec3[NUM_QUERIES];
+        Vec3[] ends = new Vec3[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            starts[i] = HeadlessScene.point(random, SIDE);
+            ends[i] = starts[i].plus(HeadlessScene.point(random, 10));
+        }
+
+        measure("Plain", new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles), starts, ends);
+        measure("BSH", new BSHConfigurationSpace(Canvas.HEADLESS, random, sphericalAgentDescription, sphericalObstacles), starts, ends);
+        measure("Grid", new GridConfigurationSpace(sphericalAgentDescription, sphericalObstacles), starts, ends);
+        measure("DistanceField", new DistanceFieldConfigurationSpace(sphericalAgentDescription, sphericalObstacles), starts, ends);
+        measure("LineSegment2D", new LineSegment2DConfigurationSpace(lineSegment2DAgentDescription, sphericalObstacles, 1f), starts, ends);
+    }
+
+    private static void measure(String name, ConfigurationSpace configurationSpace, Vec3[] starts, Vec3[] ends) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Let the JIT compile the query paths before measuring
+        int hits = 0;
+        for (int round = 0; round < NUM_WARMUP_ROUNDS; round++) {
+            hits += runQueries(configurationSpace, starts, ends);
+        }
+
+        long bytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        hits += runQueries(configurationSpace, starts, ends);
+        long end = System.nanoTime();
+        long bytesAfter = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        System.out.println(name + ": " + (bytesAfter - bytesBefore) / (float) (2 * NUM_QUERIES) + " bytes per query, "
+                + (end - start) / (float) (2 * NUM_QUERIES) + " ns per query, #hits = " + hits);
+    }
+
+    private static int runQueries(ConfigurationSpace configurationSpace, Vec3[] starts, Vec3[] ends) {
+        int hits = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (configurationSpace.doesVertexIntersectSomeObstacle(starts[i])) {
+                hits++;
+            }
+            if (configurationSpace.doesEdgeIntersectSomeObstacle(starts[i], ends[i])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
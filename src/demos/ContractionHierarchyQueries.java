@@ -0,0 +1,80 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Many point to point queries on one static roadmap, answered by A* and by a contraction hierarchy built once beforehand,
+// reporting preprocessing time, time and vertices explored per query, and the largest difference in path length
+// java -cp "build/:jars/*" demos.ContractionHierarchyQueries
+public class ContractionHierarchyQueries {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 100;
+    public static final int NUM_QUERIES = 2000;
+    public static final int NUM_VERTEX_SAMPLES = 10000;
+    // Hierarchies stay small on sparser roadmaps, at 10 the roadmap is dense enough that most upward searches
+    // reach a large part of the top of the hierarchy and do little better than A*
+    public static final float MAX_EDGE_LEN = 5f;
+    public static final int NUM_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE * 0.8f, 1, 8);
+        List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            Vec3 start = HeadlessScene.point(random, SIDE * 0.9f);
+            sphericalAgentDescriptions.add(new SphericalAgentDescription(start, HeadlessScene.point(random, SIDE * 0.9f), 1f));
+        }
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(Canvas.HEADLESS, random, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        List<Vec3> samples = HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE);
+        MultiAgentGraph graph = HeadlessScene.roadmap(sphericalAgentDescriptions, samples, MAX_EDGE_LEN, configurationSpace);
+
+        long start = System.nanoTime();
+        graph.generateContractionHierarchy();
+        long preprocessing = System.nanoTime() - start;
+
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            float[] aStarLengths = new float[NUM_QUERIES];
+            float[] hierarchyLengths = new float[NUM_QUERIES];
+            long[] aStarExplored = new long[1];
+            long[] hierarchyExplored = new long[1];
+            long aStarBest = HeadlessScene.bestNanos(NUM_ROUNDS, () -> {
+                aStarExplored[0] = 0;
+                for (int i = 0; i < NUM_QUERIES; i++) {
+                    aStarLengths[i] = HeadlessScene.length(graph.aStar(i));
+                    aStarExplored[0] += graph.numVerticesExplored();
+                }
+            });
+            long hierarchyBest = HeadlessScene.bestNanos(NUM_ROUNDS, () -> {
+                hierarchyExplored[0] = 0;
+                for (int i = 0; i < NUM_QUERIES; i++) {
+                    hierarchyLengths[i] = HeadlessScene.length(graph.contractionHierarchySearch(i));
+                    hierarchyExplored[0] += graph.numVerticesExplored();
+                }
+            });
+
+            float maxDifference = 0;
+            for (int i = 0; i < NUM_QUERIES; i++) {
+                maxDifference = Math.max(maxDifference, Math.abs(aStarLengths[i] - hierarchyLengths[i]));
+            }
+            System.out.println(NUM_QUERIES + " queries");
+            System.out.println("Contraction hierarchy preprocessing: " + preprocessing / 1e6f + " ms");
+            System.out.println("A*: " + aStarBest / 1e3f / NUM_QUERIES + " us per query, # vertices explored " + aStarExplored[0] / NUM_QUERIES);
+            System.out.println("Contraction hierarchy: " + hierarchyBest / 1e3f / NUM_QUERIES + " us per query, # vertices explored " + hierarchyExplored[0] / NUM_QUERIES);
+            System.out.println("Largest difference in path length: " + maxDifference);
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Plans for many agents with a few distinct goals, once with A* for every agent and once with one reverse shortest path
+// tree per goal, reporting time and the largest difference in path length
+// java -cp "build/:jars/*" demos.GoalTrees
+public class GoalTrees {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 100;
+    public static final int NUM_AGENTS = 1000;
+    public static final int NUM_GOALS = 10;
+    public static final int NUM_VERTEX_SAMPLES = 10000;
+    public static final float MAX_EDGE_LEN = 10f;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE * 0.8f, 1, 8);
+        List<Vec3> goals = new ArrayList<>();
+        for (int g = 0; g < NUM_GOALS; g++) {
+            goals.add(Vec3.of(0, random.random(-SIDE * 0.9f, SIDE * 0.9f), SIDE * 0.9f));
+        }
+        List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
+        for (int i = 0; i < NUM_AGENTS; i++) {
+            sphericalAgentDescriptions.add(new SphericalAgentDescription(
+                    Vec3.of(0, random.random(-SIDE * 0.9f, SIDE * 0.9f), -SIDE * 0.9f),
+                    goals.get(i % NUM_GOALS),
+                    1f
+            ));
+        }
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(Canvas.HEADLESS, random, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        List<Vec3> samples = HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE);
+        MultiAgentGraph graph = HeadlessScene.roadmap(sphericalAgentDescriptions, samples, MAX_EDGE_LEN, configurationSpace);
+
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            long start = System.nanoTime();
+            List<List<Vec3>> aStarPaths = new ArrayList<>();
+            for (int i = 0; i < NUM_AGENTS; i++) {
+                aStarPaths.add(graph.aStar(i));
+            }
+            long aStar = System.nanoTime();
+            List<List<Vec3>> treePaths = new ArrayList<>();
+            for (int i = 0; i < NUM_AGENTS; i++) {
+                treePaths.add(graph.shortestPath(i));
+            }
+            long trees = System.nanoTime();
+
+            float maxDifference = 0;
+            for (int i = 0; i < NUM_AGENTS; i++) {
+                maxDifference = Math.max(maxDifference, Math.abs(HeadlessScene.length(aStarPaths.get(i)) - HeadlessScene.length(treePaths.get(i))));
+            }
+            System.out.println(NUM_AGENTS + " agents, " + NUM_GOALS + " goals");
+            System.out.println("A* for every agent: " + (aStar - start) / 1e6f + " ms");
+            System.out.println("Reverse shortest path tree per goal: " + (trees - aStar) / 1e6f + " ms");
+            System.out.println("Largest difference in path length: " + maxDifference);
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+        }
+    }
+}
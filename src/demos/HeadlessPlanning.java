@@ -0,0 +1,74 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.acting.SphericalAgent;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs the planning pipeline without opening a window, can be used on machines without an OpenGL context
+// java -cp "build/:jars/*" demos.HeadlessPlanning
+public class HeadlessPlanning {
+    public static final int SIDE = 100;
+    public static final int NUM_VERTEX_SAMPLES = 10000;
+    public static final float MAX_EDGE_LEN = 10f;
+    public static final int NUM_QUERIES = 100;
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = RandomSource.seeded(5611);
+        final Vec3 minCorner = Vec3.of(0, -SIDE, -SIDE);
+        final Vec3 maxCorner = Vec3.of(0, SIDE, SIDE);
+        final Vec3 startPosition = Vec3.of(0, SIDE * 0.9f, SIDE * -0.9f);
+        final Vec3 finishPosition = Vec3.of(0, SIDE * -0.9f, SIDE * 0.9f);
+
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+        for (int i = -SIDE + 20; i < SIDE; i = i + 20) {
+            for (int j = -SIDE + 20; j < SIDE; j = j + 20) {
+                sphericalObstacles.add(new SphericalObstacle(
+                        canvas,
+                        Vec3.of(0, j, i),
+                        5f,
+                        Vec3.of(1, 0, 1)
+                ));
+            }
+        }
+        SphericalAgentDescription sphericalAgentDescription = new SphericalAgentDescription(
+                startPosition,
+                finishPosition,
+                SIDE * (0.5f / 20)
+        );
+
+        long start = System.currentTimeMillis();
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(canvas, random, sphericalAgentDescription, sphericalObstacles);
+        long configSpace = System.currentTimeMillis();
+        configurationSpace.enableInstrumentation();
+        SphericalAgent sphericalAgent = new SphericalAgent(canvas, random, sphericalAgentDescription, configurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        MultiAgentGraph graph = new MultiAgentGraph(canvas, startPosition, finishPosition);
+        graph.generateVertices(sphericalAgent.samplePoints(NUM_VERTEX_SAMPLES), configurationSpace);
+        graph.generateAdjacencies(MAX_EDGE_LEN, configurationSpace);
+        long roadmap = System.currentTimeMillis();
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            for (int i = 0; i < NUM_QUERIES; i++) {
+                graph.aStar();
+            }
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+        }
+        long search = System.currentTimeMillis();
+
+        System.out.println("Config space creation time: " + (configSpace - start) + " ms");
+        System.out.println("Roadmap creation time: " + (roadmap - configSpace) + " ms");
+        System.out.println("A* time: " + (search - roadmap) / (float) NUM_QUERIES + " ms per query");
+        System.out.println("Collision queries: " + configurationSpace.stats().summary());
+    }
+}
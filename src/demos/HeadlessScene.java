@@ -0,0 +1,79 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Scene setup and timing shared by the headless benchmark demos, scenes lie in the plane x = 0 like the 2D demos
+// and are drawn from the same seed so that every run measures the same scene
+final class HeadlessScene {
+    private HeadlessScene() {
+    }
+
+    static RandomSource random() {
+        return RandomSource.seeded(5611);
+    }
+
+    // Uniform in the square from (-extent, -extent) to (extent, extent)
+    static Vec3 point(RandomSource random, float extent) {
+        return Vec3.of(0, random.random(-extent, extent), random.random(-extent, extent));
+    }
+
+    static List<Vec3> points(RandomSource random, int count, float extent) {
+        List<Vec3> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(point(random, extent));
+        }
+        return points;
+    }
+
+    // Obstacles centered uniformly in the square within extent, with radii uniform in [minRadius, maxRadius)
+    static List<SphericalObstacle> obstacles(RandomSource random, int count, float extent, float minRadius, float maxRadius) {
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Vec3 center = point(random, extent);
+            sphericalObstacles.add(new SphericalObstacle(Canvas.HEADLESS, center, random.random(minRadius, maxRadius), Vec3.of(1, 0, 1)));
+        }
+        return sphericalObstacles;
+    }
+
+    // Agent crossing the square within extent diagonally
+    static SphericalAgentDescription crossingAgent(float extent, float radius) {
+        return new SphericalAgentDescription(Vec3.of(0, extent, -extent), Vec3.of(0, -extent, extent), radius);
+    }
+
+    // Roadmap over the samples outside obstacles with the start and finish of every agent
+    static MultiAgentGraph roadmap(List<SphericalAgentDescription> sphericalAgentDescriptions, List<Vec3> samples,
+                                   float maxEdgeLength, ConfigurationSpace configurationSpace) {
+        MultiAgentGraph graph = new MultiAgentGraph(Canvas.HEADLESS, sphericalAgentDescriptions);
+        graph.generateVertices(samples, configurationSpace);
+        graph.generateAdjacencies(maxEdgeLength, configurationSpace);
+        return graph;
+    }
+
+    static float length(List<Vec3> path) {
+        float length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            length += path.get(i).minus(path.get(i - 1)).norm();
+        }
+        return length;
+    }
+
+    // Shortest of numRounds runs in nanoseconds, the first ones warm up
+    static long bestNanos(int numRounds, Runnable run) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < numRounds; round++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
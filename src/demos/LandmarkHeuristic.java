@@ -0,0 +1,107 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.PlainConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A* for the agents of ttc.BigBall and between random starts and finishes around its obstacles, with the straight line distance
+// as heuristic and with landmark (ALT) bounds from growing numbers of landmarks, reporting landmark generation time,
+// vertices expanded, query time and the largest difference in path length to plain A*
+// java -cp "build/:jars/*" demos.LandmarkHeuristic
+public class LandmarkHeuristic {
+    public static final int SIDE = 100;
+    public static final int NUM_RANDOM_QUERIES = 500;
+    public static final int NUM_VERTEX_SAMPLES = 10000;
+    public static final float MAX_EDGE_LEN = 10f;
+    public static final int[] NUM_LANDMARKS = {0, 4, 8, 16};
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sphericalObstacles.add(new SphericalObstacle(canvas, Vec3.of(0, SIDE * 0.9f - 20, SIDE * -0.9f + 20 * i - 10), SIDE * 0.1f, Vec3.of(1, 0, 1)));
+        }
+        for (int i = 0; i < 5; i++) {
+            sphericalObstacles.add(new SphericalObstacle(canvas, Vec3.of(0, SIDE * -0.9f + 20, SIDE * -0.9f + 20 * i - 10), SIDE * 0.1f, Vec3.of(1, 0, 1)));
+        }
+        sphericalObstacles.add(new SphericalObstacle(canvas, Vec3.of(0, 0, -10), SIDE * 0.35f, Vec3.of(1, 0, 1)));
+        float agentRadius = SIDE * 0.01f;
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(
+                new SphericalAgentDescription(Vec3.of(0), Vec3.of(0), agentRadius), sphericalObstacles);
+
+        // The agents of ttc.BigBall, which cross to the other side of the big ball
+        List<SphericalAgentDescription> bigBallAgents = new ArrayList<>();
+        Vec3 bottomLeft = Vec3.of(0, SIDE * 0.9f, SIDE * -0.9f);
+        Vec3 topRight = Vec3.of(0, SIDE * -0.9f, SIDE * -0.9f);
+        for (Vec3[] ends : new Vec3[][]{{bottomLeft, topRight}, {topRight, bottomLeft}}) {
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    bigBallAgents.add(new SphericalAgentDescription(
+                            ends[0].plus(Vec3.of(0, 3f * agentRadius * j, 3f * agentRadius * i)),
+                            ends[1],
+                            agentRadius
+                    ));
+                }
+            }
+        }
+        compare("BigBall agents", bigBallAgents, configurationSpace, random);
+
+        // Queries with both ends outside obstacles
+        List<SphericalAgentDescription> randomQueries = new ArrayList<>();
+        while (randomQueries.size() < NUM_RANDOM_QUERIES) {
+            Vec3 start = HeadlessScene.point(random, SIDE * 0.9f);
+            Vec3 finish = HeadlessScene.point(random, SIDE * 0.9f);
+            if (!configurationSpace.doesVertexIntersectSomeObstacle(start) && !configurationSpace.doesVertexIntersectSomeObstacle(finish)) {
+                randomQueries.add(new SphericalAgentDescription(start, finish, agentRadius));
+            }
+        }
+        compare("Random queries", randomQueries, configurationSpace, random);
+    }
+
+    private static void compare(String name, List<SphericalAgentDescription> queries, ConfigurationSpace configurationSpace, RandomSource random) {
+        List<Vec3> samples = HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE);
+        MultiAgentGraph graph = HeadlessScene.roadmap(queries, samples, MAX_EDGE_LEN, configurationSpace);
+
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            System.out.println(name + ", " + queries.size() + " queries");
+            float[] straightLineLengths = new float[queries.size()];
+            for (int numLandmarks : NUM_LANDMARKS) {
+                long start = System.nanoTime();
+                if (numLandmarks > 0) {
+                    graph.generateLandmarks(numLandmarks);
+                }
+                long landmarks = System.nanoTime();
+                long numVerticesExplored = 0;
+                float maxDifference = 0;
+                for (int i = 0; i < queries.size(); i++) {
+                    float length = HeadlessScene.length(graph.aStar(i));
+                    numVerticesExplored += graph.numVerticesExplored();
+                    if (numLandmarks == 0) {
+                        straightLineLengths[i] = length;
+                    }
+                    maxDifference = Math.max(maxDifference, Math.abs(length - straightLineLengths[i]));
+                }
+                long search = System.nanoTime();
+                System.out.println("  " + (numLandmarks == 0 ? "Straight line" : numLandmarks + " landmarks")
+                        + ": generation " + (landmarks - start) / 1e6f + " ms"
+                        + ", # vertices explored " + numVerticesExplored
+                        + ", A* " + (search - landmarks) / 1e6f + " ms"
+                        + ", largest difference in path length " + maxDifference);
+            }
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+        }
+    }
+}
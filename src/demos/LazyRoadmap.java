@@ -0,0 +1,53 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.List;
+
+// Single query with every edge checked up front against lazy PRM, where A* only checks the edge each vertex it expands was reached over
+// Reports startup time, query time, number of edge checks and the length of the path found
+// java -cp "build/:jars/*" demos.LazyRoadmap
+public class LazyRoadmap {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 200;
+    public static final int NUM_VERTEX_SAMPLES = 20000;
+    public static final float MAX_EDGE_LEN = 10f;
+
+    public static void main(String[] args) {
+        boolean wasLazy = MultiAgentGraph.LAZY_EDGES;
+        try {
+            for (boolean isLazy : new boolean[]{false, true}) {
+                final RandomSource random = HeadlessScene.random();
+                List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE * 0.8f, 1, 8);
+                SphericalAgentDescription sphericalAgentDescription = HeadlessScene.crossingAgent(SIDE * 0.9f, 1f);
+                ConfigurationSpace configurationSpace = new BSHConfigurationSpace(Canvas.HEADLESS, random, sphericalAgentDescription, sphericalObstacles);
+                MultiAgentGraph graph = new MultiAgentGraph(Canvas.HEADLESS, sphericalAgentDescription.startPosition, sphericalAgentDescription.finishPosition);
+                graph.generateVertices(HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE), configurationSpace);
+                configurationSpace.enableInstrumentation();
+
+                MultiAgentGraph.LAZY_EDGES = isLazy;
+                long start = System.nanoTime();
+                graph.generateAdjacencies(MAX_EDGE_LEN, configurationSpace);
+                long roadmap = System.nanoTime();
+                long edgeChecksAtStartup = configurationSpace.stats().edgeQueries();
+                List<Vec3> path = graph.aStar();
+                long search = System.nanoTime();
+
+                System.out.println(isLazy ? "Lazy" : "Eager");
+                System.out.println("  Roadmap creation time: " + (roadmap - start) / 1e6f + " ms, # edge checks: " + edgeChecksAtStartup);
+                System.out.println("  A* time: " + (search - roadmap) / 1e6f + " ms, # edge checks: "
+                        + (configurationSpace.stats().edgeQueries() - edgeChecksAtStartup));
+                System.out.println("  Path: " + path.size() + " vertices, length = " + HeadlessScene.length(path));
+            }
+        } finally {
+            MultiAgentGraph.LAZY_EDGES = wasLazy;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package demos;
+
+import math.RandomSource;
+import math.Vec3;
+import robot.planning.NeighbourGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares finding all pairs of roadmap vertices within the max edge length by comparing every pair
+// against NeighbourGrid, the all pairs loop is skipped once it gets too slow
+// java -cp "build/:jars/*" demos.NeighbourSearch
+public class NeighbourSearch {
+    public static final int SIDE = 100;
+    public static final float MAX_EDGE_LEN = 10f;
+    public static final int[] NUM_VERTICES = {10000, 30000, 100000, 300000, 1000000};
+    public static final int MAX_ALL_PAIRS_VERTICES = 30000;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+        for (int numVertices : NUM_VERTICES) {
+            // Same density as the 2D demos at 10000 vertices, so the number of neighbours per vertex grows with size
+            float side = SIDE * (float) Math.sqrt(numVertices / 10000f);
+            List<Vec3> positions = new ArrayList<>(numVertices);
+            for (int i = 0; i < numVertices; i++) {
+                positions.add(HeadlessScene.point(random, side));
+            }
+
+            long start = System.currentTimeMillis();
+            NeighbourGrid neighbourGrid = new NeighbourGrid(positions, MAX_EDGE_LEN);
+            NeighbourGrid.Neighbours neighbours = new NeighbourGrid.Neighbours();
+            long numPairs = 0;
+            long checksum = 0;
+            for (int i = 0; i < numVertices - 1; i++) {
+                neighbourGrid.neighboursAfter(i, neighbours);
+                for (int k = 0; k < neighbours.size; k++) {
+                    numPairs++;
+                    checksum = 31 * checksum + 1000003L * i + neighbours.indices[k];
+                }
+            }
+            long grid = System.currentTimeMillis();
+            String line = numVertices + " vertices, #pairs = " + numPairs + ", grid " + (grid - start) + " ms";
+
+            if (numVertices <= MAX_ALL_PAIRS_VERTICES) {
+                long allPairsChecksum = 0;
+                long numAllPairs = 0;
+                for (int i = 0; i < numVertices - 1; i++) {
+                    for (int j = i + 1; j < numVertices; j++) {
+                        if (positions.get(i).minus(positions.get(j)).norm() <= MAX_EDGE_LEN) {
+                            numAllPairs++;
+                            allPairsChecksum = 31 * allPairsChecksum + 1000003L * i + j;
+                        }
+                    }
+                }
+                long allPairs = System.currentTimeMillis();
+                line += ", all pairs " + (allPairs - grid) + " ms, same pairs in same order = "
+                        + (numAllPairs == numPairs && allPairsChecksum == checksum);
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.sensing.BSHConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Times sequential and fork/join BSH construction with growing numbers of worker threads
+// and checks that every build answers queries exactly like the sequential one
+// java -cp "build/:jars/*" demos.ParallelBSHConstruction
+public class ParallelBSHConstruction {
+    public static final int SIDE = 1000;
+    public static final int NUM_OBSTACLES = 500000;
+    public static final int NUM_QUERIES = 100000;
+    public static final int NUM_ROUNDS = 3;
+    public static final int[] NUM_THREADS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = RandomSource.seeded(5611);
+
+        List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+        for (int i = 0; i < NUM_OBSTACLES; i++) {
+            sphericalObstacles.add(new SphericalObstacle(
+                    canvas,
+                    Vec3.of(random.random(-SIDE, SIDE), random.random(-SIDE, SIDE), random.random(-SIDE, SIDE)),
+                    random.random(1, 5),
+                    Vec3.of(1, 0, 1)
+            ));
+        }
+        SphericalAgentDescription sphericalAgentDescription = new SphericalAgentDescription(
+                Vec3.of(-SIDE),
+                Vec3.of(SIDE),
+                1f
+        );
+        Vec3[] starts = new Vec3[NUM_QUERIES];
+        Vec3[] ends = new Vec3[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            starts[i] = Vec3.of(random.random(-SIDE, SIDE), random.random(-SIDE, SIDE), random.random(-SIDE, SIDE));
+            ends[i] = starts[i].plus(Vec3.of(random.random(-20, 20), random.random(-20, 20), random.random(-20, 20)));
+        }
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        boolean wasParallel = BSHConfigurationSpace.PARALLEL_CONSTRUCTION;
+        ForkJoinPool previousPool = BSHConfigurationSpace.CONSTRUCTION_POOL;
+        try {
+            BSHConfigurationSpace.PARALLEL_CONSTRUCTION = false;
+            long sequentialMillis = Long.MAX_VALUE;
+            BSHConfigurationSpace sequential = null;
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                long start = System.currentTimeMillis();
+                sequential = new BSHConfigurationSpace(canvas, RandomSource.seeded(1), sphericalAgentDescription, sphericalObstacles);
+                sequentialMillis = Math.min(sequentialMillis, System.currentTimeMillis() - start);
+            }
+            System.out.println("Sequential: " + sequentialMillis + " ms");
+
+            BSHConfigurationSpace.PARALLEL_CONSTRUCTION = true;
+            for (int numThreads : NUM_THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(numThreads);
+                BSHConfigurationSpace.CONSTRUCTION_POOL = pool;
+                long parallelMillis = Long.MAX_VALUE;
+                BSHConfigurationSpace parallel = null;
+                for (int round = 0; round < NUM_ROUNDS; round++) {
+                    long start = System.currentTimeMillis();
+                    parallel = new BSHConfigurationSpace(canvas, RandomSource.seeded(1), sphericalAgentDescription, sphericalObstacles);
+                    parallelMillis = Math.min(parallelMillis, System.currentTimeMillis() - start);
+                }
+                pool.shutdown();
+
+                int mismatches = 0;
+                for (int i = 0; i < NUM_QUERIES; i++) {
+                    if (sequential.doesVertexIntersectSomeObstacle(starts[i]) != parallel.doesVertexIntersectSomeObstacle(starts[i])
+                            || sequential.doesEdgeIntersectSomeObstacle(starts[i], ends[i]) != parallel.doesEdgeIntersectSomeObstacle(starts[i], ends[i])) {
+                        mismatches++;
+                    }
+                }
+                System.out.println(numThreads + " threads: " + parallelMillis + " ms, speedup = "
+                        + sequentialMillis / (float) parallelMillis + ", mismatches = " + mismatches);
+            }
+        } finally {
+            BSHConfigurationSpace.PARALLEL_CONSTRUCTION = wasParallel;
+            BSHConfigurationSpace.CONSTRUCTION_POOL = previousPool;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.acting.MultiSphericalAgentSystem;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Times A* for every agent of a MultiSphericalAgentSystem planned one after another and on pools of growing numbers of threads
+// java -cp "build/:jars/*" demos.ParallelPlanning
+public class ParallelPlanning {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 100;
+    public static final int NUM_AGENTS = 1000;
+    public static final int[] NUM_THREADS = {1, 2, 4, 8, 16, 32};
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+        final Vec3 minCorner = Vec3.of(0, -SIDE, -SIDE);
+        final Vec3 maxCorner = Vec3.of(0, SIDE, SIDE);
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE * 0.8f, 1, 8);
+        List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
+        for (int i = 0; i < NUM_AGENTS; i++) {
+            sphericalAgentDescriptions.add(new SphericalAgentDescription(
+                    Vec3.of(0, random.random(-SIDE * 0.9f, SIDE * 0.9f), -SIDE * 0.9f),
+                    Vec3.of(0, random.random(-SIDE * 0.9f, SIDE * 0.9f), SIDE * 0.9f),
+                    1f
+            ));
+        }
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(canvas, random, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        MultiSphericalAgentSystem multiSphericalAgentSystem = new MultiSphericalAgentSystem(canvas, random, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
+        boolean wasSharingGoalSearches = MultiSphericalAgentSystem.SHARE_GOAL_SEARCHES;
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        boolean wasParallel = MultiSphericalAgentSystem.PARALLEL_PLANNING;
+        ForkJoinPool previousPool = MultiSphericalAgentSystem.PLANNING_POOL;
+        try {
+            // Every agent has its own goal, so that each runs a search
+            MultiSphericalAgentSystem.SHARE_GOAL_SEARCHES = false;
+
+            MultiAgentGraph.LOG_SEARCHES = false;
+            MultiSphericalAgentSystem.PARALLEL_PLANNING = false;
+            long serialMillis = plan(multiSphericalAgentSystem);
+            System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+            System.out.println(NUM_AGENTS + " agents, serial: " + serialMillis + " ms, # vertices explored " + multiSphericalAgentSystem.numVerticesExplored());
+            MultiSphericalAgentSystem.PARALLEL_PLANNING = true;
+            for (int numThreads : NUM_THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(numThreads);
+                MultiSphericalAgentSystem.PLANNING_POOL = pool;
+                long millis = plan(multiSphericalAgentSystem);
+                System.out.println(numThreads + " threads: " + millis + " ms, speedup " + (float) serialMillis / millis
+                        + ", # vertices explored " + multiSphericalAgentSystem.numVerticesExplored());
+                pool.shutdown();
+            }
+        } finally {
+            MultiSphericalAgentSystem.SHARE_GOAL_SEARCHES = wasSharingGoalSearches;
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+            MultiSphericalAgentSystem.PARALLEL_PLANNING = wasParallel;
+            MultiSphericalAgentSystem.PLANNING_POOL = previousPool;
+        }
+    }
+
+    // Best of a few rounds, the first warms up
+    private static long plan(MultiSphericalAgentSystem multiSphericalAgentSystem) {
+        return HeadlessScene.bestNanos(3, multiSphericalAgentSystem::aStar) / 1000000;
+    }
+}
@@ -0,0 +1,67 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Times serial and parallel roadmap edge construction with growing numbers of worker threads,
+// every build prints its edge counts which should all be the same
+// java -cp "build/:jars/*" demos.ParallelRoadmap
+public class ParallelRoadmap {
+    public static final int SIDE = 300;
+    public static final int NUM_OBSTACLES = 2000;
+    public static final int NUM_VERTEX_SAMPLES = 100000;
+    public static final float MAX_EDGE_LEN = 10f;
+    public static final int[] NUM_THREADS = {1, 2, 4, 8, 16, 32};
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE, 1, 5);
+        SphericalAgentDescription sphericalAgentDescription = HeadlessScene.crossingAgent(SIDE, 1f);
+        List<Vec3> vertexPositions = HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE);
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(canvas, random, sphericalAgentDescription, sphericalObstacles);
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        boolean wereAdjacenciesParallel = MultiAgentGraph.PARALLEL_ADJACENCIES;
+        boolean wereEdgeChecksParallel = ConfigurationSpace.PARALLEL_EDGE_CHECKS;
+        ForkJoinPool previousPool = MultiAgentGraph.ADJACENCY_POOL;
+        try {
+            MultiAgentGraph.PARALLEL_ADJACENCIES = false;
+            ConfigurationSpace.PARALLEL_EDGE_CHECKS = false;
+            long serialMillis = build(configurationSpace, sphericalAgentDescription, vertexPositions);
+            System.out.println("Serial: " + serialMillis + " ms");
+
+            MultiAgentGraph.PARALLEL_ADJACENCIES = true;
+            ConfigurationSpace.PARALLEL_EDGE_CHECKS = true;
+            for (int numThreads : NUM_THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(numThreads);
+                MultiAgentGraph.ADJACENCY_POOL = pool;
+                long parallelMillis = build(configurationSpace, sphericalAgentDescription, vertexPositions);
+                pool.shutdown();
+                System.out.println(numThreads + " threads: " + parallelMillis + " ms, speedup = " + serialMillis / (float) parallelMillis);
+            }
+        } finally {
+            MultiAgentGraph.PARALLEL_ADJACENCIES = wereAdjacenciesParallel;
+            ConfigurationSpace.PARALLEL_EDGE_CHECKS = wereEdgeChecksParallel;
+            MultiAgentGraph.ADJACENCY_POOL = previousPool;
+        }
+    }
+
+    private static long build(ConfigurationSpace configurationSpace, SphericalAgentDescription sphericalAgentDescription, List<Vec3> vertexPositions) {
+        MultiAgentGraph graph = new MultiAgentGraph(Canvas.HEADLESS, sphericalAgentDescription.startPosition, sphericalAgentDescription.finishPosition);
+        graph.generateVertices(vertexPositions, configurationSpace);
+        long start = System.currentTimeMillis();
+        graph.generateAdjacencies(MAX_EDGE_LEN, configurationSpace);
+        return System.currentTimeMillis() - start;
+    }
+}
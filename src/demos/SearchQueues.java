@@ -0,0 +1,198 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.IndexedMinHeap;
+import robot.planning.NeighbourGrid;
+import robot.planning.Roadmap;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Compares the fringes of UCS and A* on one roadmap, reporting expansions, path length and time per search
+//  - the former PriorityQueue ordered by (int) of the float difference, distances fixed when first reached
+//  - PriorityQueue ordered by Float.compare, stale duplicates skipped when popped
+//  - IndexedMinHeap with decrease key
+// java -cp "build/:jars/*" demos.SearchQueues
+public class SearchQueues {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 100;
+    public static final int NUM_VERTEX_SAMPLES = 100000;
+    public static final float MAX_EDGE_LEN = 3f;
+    public static final int NUM_ROUNDS = 5;
+
+    static Roadmap roadmap;
+    static float[] heuristic;
+    static final int START = 0;
+    static final int FINISH = 1;
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE, 1, 8);
+        SphericalAgentDescription sphericalAgentDescription = HeadlessScene.crossingAgent(SIDE * 0.9f, 1f);
+        ConfigurationSpace configurationSpace = new BSHConfigurationSpace(canvas, random, sphericalAgentDescription, sphericalObstacles);
+
+        // Roadmap of free vertices and edges, start and finish first
+        List<Vec3> positions = new ArrayList<>();
+        positions.add(sphericalAgentDescription.startPosition);
+        positions.add(sphericalAgentDescription.finishPosition);
+        for (int i = 0; i < NUM_VERTEX_SAMPLES; i++) {
+            Vec3 position = HeadlessScene.point(random, SIDE);
+            if (!configurationSpace.doesVertexIntersectSomeObstacle(position)) {
+                positions.add(position);
+            }
+        }
+        NeighbourGrid neighbourGrid = new NeighbourGrid(positions, MAX_EDGE_LEN);
+        NeighbourGrid.Neighbours neighbours = new NeighbourGrid.Neighbours();
+        EdgeBatch batch = new EdgeBatch();
+        int[] candidates = new int[0];
+        for (int i = 0; i < positions.size(); i++) {
+            neighbourGrid.neighboursAfter(i, neighbours);
+            for (int k = 0; k < neighbours.size; k++) {
+                int edge = batch.add(positions.get(i), positions.get(neighbours.indices[k]));
+                if (2 * edge + 2 > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(1024, 2 * candidates.length));
+                }
+                candidates[2 * edge] = i;
+                candidates[2 * edge + 1] = neighbours.indices[k];
+            }
+        }
+        BitSet invalid = batch.check(configurationSpace);
+        int[] edges = new int[2 * batch.size()];
+        int numEdges = 0;
+        for (int edge = 0; edge < batch.size(); edge++) {
+            if (!invalid.get(edge)) {
+                edges[2 * numEdges] = candidates[2 * edge];
+                edges[2 * numEdges + 1] = candidates[2 * edge + 1];
+                numEdges++;
+            }
+        }
+        float[] coordinates = new float[3 * positions.size()];
+        heuristic = new float[positions.size()];
+        for (int v = 0; v < positions.size(); v++) {
+            coordinates[3 * v] = positions.get(v).x;
+            coordinates[3 * v + 1] = positions.get(v).y;
+            coordinates[3 * v + 2] = positions.get(v).z;
+            heuristic[v] = positions.get(v).minus(sphericalAgentDescription.finishPosition).norm();
+        }
+        roadmap = Roadmap.empty().withEdges(coordinates, edges, numEdges);
+        System.out.println("Roadmap: " + roadmap.numVertices + " vertices, " + numEdges + " edges");
+
+        for (float heuristicWeight : new float[]{0, 1}) {
+            System.out.println(heuristicWeight == 0 ? "UCS" : "A*");
+            for (int queue = 0; queue < 3; queue++) {
+                final int q = queue;
+                Result[] result = new Result[1];
+                long nanos = HeadlessScene.bestNanos(NUM_ROUNDS, () -> result[0] = q == 0 ? intComparatorSearch(heuristicWeight)
+                        : q == 1 ? lazyDeletionSearch(heuristicWeight)
+                        : indexedHeapSearch(heuristicWeight));
+                String name = queue == 0 ? "PriorityQueue, int comparator" : queue == 1 ? "PriorityQueue, lazy deletion" : "IndexedMinHeap";
+                System.out.println("  " + name + ": #expansions = " + result[0].numExpansions
+                        + ", path length = " + result[0].pathLength + ", " + nanos / 1e6f + " ms");
+            }
+        }
+    }
+
+    static class Result {
+        int numExpansions = 0;
+        float pathLength = Float.NaN;
+    }
+
+    private static Result intComparatorSearch(float heuristicWeight) {
+        Result result = new Result();
+        float[] distance = new float[roadmap.numVertices];
+        boolean[] isReached = new boolean[roadmap.numVertices];
+        PriorityQueue<Integer> fringe = new PriorityQueue<>((v1, v2) -> (int) (
+                (distance[v1] + heuristicWeight * heuristic[v1]) - (distance[v2] + heuristicWeight * heuristic[v2])));
+        isReached[START] = true;
+        fringe.add(START);
+        while (!fringe.isEmpty()) {
+            int current = fringe.remove();
+            result.numExpansions++;
+            if (current == FINISH) {
+                result.pathLength = distance[FINISH];
+                return result;
+            }
+            for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                int neighbour = roadmap.targets[k];
+                if (!isReached[neighbour]) {
+                    isReached[neighbour] = true;
+                    distance[neighbour] = distance[current] + roadmap.edgeLengths[k];
+                    fringe.add(neighbour);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Result lazyDeletionSearch(float heuristicWeight) {
+        Result result = new Result();
+        float[] distance = new float[roadmap.numVertices];
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        boolean[] isClosed = new boolean[roadmap.numVertices];
+        // Entries are (key, vertex) so that a vertex can be in the queue with several keys
+        PriorityQueue<float[]> fringe = new PriorityQueue<>((e1, e2) -> Float.compare(e1[0], e2[0]));
+        distance[START] = 0;
+        fringe.add(new float[]{heuristicWeight * heuristic[START], START});
+        while (!fringe.isEmpty()) {
+            int current = (int) fringe.remove()[1];
+            if (isClosed[current]) {
+                continue;
+            }
+            isClosed[current] = true;
+            result.numExpansions++;
+            if (current == FINISH) {
+                result.pathLength = distance[FINISH];
+                return result;
+            }
+            for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                int neighbour = roadmap.targets[k];
+                float newDistance = distance[current] + roadmap.edgeLengths[k];
+                if (!isClosed[neighbour] && newDistance < distance[neighbour]) {
+                    distance[neighbour] = newDistance;
+                    fringe.add(new float[]{newDistance + heuristicWeight * heuristic[neighbour], neighbour});
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Result indexedHeapSearch(float heuristicWeight) {
+        Result result = new Result();
+        float[] distance = new float[roadmap.numVertices];
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        boolean[] isClosed = new boolean[roadmap.numVertices];
+        IndexedMinHeap fringe = new IndexedMinHeap(roadmap.numVertices);
+        distance[START] = 0;
+        fringe.insert(START, heuristicWeight * heuristic[START]);
+        while (!fringe.isEmpty()) {
+            int current = fringe.popMin();
+            isClosed[current] = true;
+            result.numExpansions++;
+            if (current == FINISH) {
+                result.pathLength = distance[FINISH];
+                return result;
+            }
+            for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                int neighbour = roadmap.targets[k];
+                float newDistance = distance[current] + roadmap.edgeLengths[k];
+                if (!isClosed[neighbour] && newDistance < distance[neighbour]) {
+                    distance[neighbour] = newDistance;
+                    fringe.insertOrDecreaseKey(neighbour, newDistance + heuristicWeight * heuristic[neighbour]);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package demos;
+
+import fixed.SphericalObstacle;
+import graphics.Canvas;
+import math.RandomSource;
+import math.Vec3;
+import robot.sensing.BSHConfigurationSpace;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeBatch;
+import robot.sensing.SharedBSHConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Agents of different radii querying one shared bounding sphere hierarchy, compared against one hierarchy per radius
+// java -cp "build/:jars/*" demos.SharedObstacleHierarchy
+public class SharedObstacleHierarchy {
+    public static final int SIDE = 100;
+    public static final int NUM_OBSTACLES = 2000;
+    public static final float[] AGENT_RADII = {0.25f, 0.5f, 1f, 2f, 4f, 8f};
+    public static final int NUM_EDGES = 200000;
+
+    public static void main(String[] args) {
+        final Canvas canvas = Canvas.HEADLESS;
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalObstacle> sphericalObstacles = HeadlessScene.obstacles(random, NUM_OBSTACLES, SIDE, 0.1f, 0.5f);
+        EdgeBatch batch = new EdgeBatch();
+        for (int i = 0; i < NUM_EDGES; i++) {
+            Vec3 start = HeadlessScene.point(random, SIDE);
+            batch.add(start, start.plus(HeadlessScene.point(random, 2)));
+        }
+
+        long start = System.currentTimeMillis();
+        List<ConfigurationSpace> separate = new ArrayList<>();
+        for (float radius : AGENT_RADII) {
+            separate.add(new BSHConfigurationSpace(canvas, random, HeadlessScene.crossingAgent(SIDE, radius), sphericalObstacles));
+        }
+        long separateBuilt = System.currentTimeMillis();
+        BSHConfigurationSpace obstacleIndex = new BSHConfigurationSpace(canvas, random, HeadlessScene.crossingAgent(SIDE, 0), sphericalObstacles);
+        List<ConfigurationSpace> shared = new ArrayList<>();
+        for (float radius : AGENT_RADII) {
+            shared.add(new SharedBSHConfigurationSpace(obstacleIndex, HeadlessScene.crossingAgent(SIDE, radius)));
+        }
+        long sharedBuilt = System.currentTimeMillis();
+
+        System.out.println("One hierarchy per radius: " + (separateBuilt - start) + " ms to build");
+        System.out.println("Shared hierarchy: " + (sharedBuilt - separateBuilt) + " ms to build");
+        for (int r = 0; r < AGENT_RADII.length; r++) {
+            long checkStart = System.nanoTime();
+            BitSet expected = batch.check(separate.get(r));
+            long separateChecked = System.nanoTime();
+            BitSet actual = batch.check(shared.get(r));
+            long sharedChecked = System.nanoTime();
+            BitSet difference = (BitSet) expected.clone();
+            difference.xor(actual);
+            System.out.println("radius " + AGENT_RADII[r] + ": #invalid = " + expected.cardinality()
+                    + ", mismatches = " + difference.cardinality()
+                    + ", own " + (separateChecked - checkStart) / 1000000 + " ms"
+                    + ", shared " + (sharedChecked - separateChecked) / 1000000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package demos;
+
+import math.RandomSource;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+import robot.planning.multiagentgraph.MultiAgentGraph;
+import robot.sensing.ConfigurationSpace;
+import robot.sensing.PlainConfigurationSpace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Times A* between nearby starts and finishes on a large roadmap, where a search only expands a few vertices
+// and resetting the state of every vertex before each search would cost more than the search itself
+// java -cp "build/:jars/*" demos.ShortQueries
+public class ShortQueries {
+    public static final int SIDE = 500;
+    public static final int NUM_AGENTS = 100;
+    public static final int NUM_VERTEX_SAMPLES = 500000;
+    public static final float MAX_EDGE_LEN = 2f;
+    public static final float QUERY_DISTANCE = 10f;
+    public static final int NUM_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        final RandomSource random = HeadlessScene.random();
+
+        List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
+        for (int i = 0; i < NUM_AGENTS; i++) {
+            Vec3 start = HeadlessScene.point(random, SIDE * 0.9f);
+            sphericalAgentDescriptions.add(new SphericalAgentDescription(
+                    start,
+                    start.plus(Vec3.of(0, QUERY_DISTANCE, 0)),
+                    1f
+            ));
+        }
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), Collections.emptyList());
+        List<Vec3> samples = HeadlessScene.points(random, NUM_VERTEX_SAMPLES, SIDE);
+        MultiAgentGraph graph = HeadlessScene.roadmap(sphericalAgentDescriptions, samples, MAX_EDGE_LEN, configurationSpace);
+
+        boolean wasLogging = MultiAgentGraph.LOG_SEARCHES;
+        try {
+            MultiAgentGraph.LOG_SEARCHES = false;
+            int[] numReached = new int[1];
+            long best = HeadlessScene.bestNanos(NUM_ROUNDS, () -> {
+                numReached[0] = 0;
+                for (int i = 0; i < NUM_AGENTS; i++) {
+                    if (graph.aStar(i).size() > 1) {
+                        numReached[0]++;
+                    }
+                }
+            });
+            System.out.println((NUM_VERTEX_SAMPLES + 2 * NUM_AGENTS) + " vertices, " + numReached[0] + " of " + NUM_AGENTS + " finishes reached");
+            System.out.println("A* time: " + best / 1e6f / NUM_AGENTS + " ms per query");
+        } finally {
+            MultiAgentGraph.LOG_SEARCHES = wasLogging;
+        }
+    }
+}
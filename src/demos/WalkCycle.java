@@ -4,6 +4,7 @@ import camera.QueasyCam;
 import fixed.Ground;
 import fixed.SphericalObstacle;
 import fixed.SpriteSphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -16,7 +17,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class WalkCycle extends PApplet {
+public class WalkCycle extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 1000;
@@ -113,13 +114,13 @@ public class WalkCycle extends PApplet {
         );
 
         PlainConfigurationSpace configurationSpace = new PlainConfigurationSpace(
-                this,
                 sphericalAgentDescription,
                 sphericalObstacles
         );
         SphericalAgent.MILESTONE_REACHED_RADIUS = 6f;
         SphericalAgent.NEXT_MILESTONE_HINT_SIZE = 18f;
         sphericalAgent = new SphericalAgent(
+                this,
                 this,
                 sphericalAgentDescription,
                 configurationSpace,
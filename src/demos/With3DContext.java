@@ -1,5 +1,6 @@
 package demos;
 
+import graphics.Sketch;
 import robot.acting.SphericalAgent;
 import camera.QueasyCam;
 import robot.input.SphericalAgentDescription;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class With3DContext extends PApplet {
+public class With3DContext extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 200;
@@ -113,11 +114,11 @@ public class With3DContext extends PApplet {
                 SIDE * 0.08f
         );
         PlainConfigurationSpace configurationSpace = new PlainConfigurationSpace(
-                this,
                 sphericalAgentDescription,
                 sphericalObstacles
                 );
         sphericalAgent = new SphericalAgent(
+                this,
                 this,
                 sphericalAgentDescription,
                 configurationSpace,
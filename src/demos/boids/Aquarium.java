@@ -2,6 +2,7 @@ package demos.boids;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.FreeAgent;
@@ -10,7 +11,7 @@ import robot.acting.MultiSphericalAgentSystem;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Aquarium extends PApplet {
+public class Aquarium extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -2,6 +2,7 @@ package demos.boids;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import processing.core.PShape;
@@ -15,7 +16,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Birds extends PApplet {
+public class Birds extends Sketch {
     public static final int WIDTH = 1200;
     public static final int HEIGHT = 1200;
     public static final int SIDE = 100;
@@ -127,8 +128,8 @@ public class Birds extends PApplet {
         model.scale(0.01f);
         wings.add(model);
 
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
         MultiSphericalAgentSystem.INITIAL_AGENT_SPEED = 10f;
 
         MultiAgentGraph.DRAW_ENDS = false;
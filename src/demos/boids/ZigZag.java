@@ -2,6 +2,7 @@ package demos.boids;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ZigZag extends PApplet {
+public class ZigZag extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -69,8 +70,8 @@ public class ZigZag extends PApplet {
         finishPositions.add(finish1);
         finishPositions.add(finish2);
 
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
 
         buildFLock(finishPositions, multiSphericalAgentSystem);
 
@@ -1,6 +1,7 @@
 package demos.rotation;
 
 import camera.QueasyCam;
+import graphics.Sketch;
 import math.Vec3;
 import robot.acting.LineSegment2DAgent;
 import robot.input.LineSegment2DAgentDescription;
@@ -12,7 +13,7 @@ import robot.sensing.LineSegment2DConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class With2DRotation1 extends PApplet {
+public class With2DRotation1 extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -68,8 +69,8 @@ public class With2DRotation1 extends PApplet {
                 finishPose,
                 60
         );
-        configurationSpace = new LineSegment2DConfigurationSpace(this, lineSegment2DAgentDescription, sphericalObstacles, orientationScale);
-        lineSegmentAgent = new LineSegment2DAgent(this, lineSegment2DAgentDescription, configurationSpace, minCorner, maxCorner, 10f, Vec3.of(1));
+        configurationSpace = new LineSegment2DConfigurationSpace(lineSegment2DAgentDescription, sphericalObstacles, orientationScale);
+        lineSegmentAgent = new LineSegment2DAgent(this, this, lineSegment2DAgentDescription, configurationSpace, minCorner, maxCorner, 10f, Vec3.of(1));
         MultiAgentGraph.END_POINT_SIZE = 3f;
         graph = new MultiAgentGraph(this, startPose, finishPose);
         graph.generateVertices(lineSegmentAgent.samplePoints(25000), configurationSpace);
@@ -2,6 +2,7 @@ package demos.rrt;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.SphericalAgent;
@@ -12,7 +13,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PRM0 extends PApplet {
+public class PRM0 extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -54,8 +55,8 @@ public class PRM0 extends PApplet {
                 finishPosition,
                 SIDE * (0.5f / 20)
         );
-        PlainConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescription, sphericalObstacles);
-        sphericalAgent = new SphericalAgent(this, sphericalAgentDescription, configurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        PlainConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, configurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
         graph = new MultiAgentGraph(this, startPosition, finishPosition);
         graph.generateVertices(sphericalAgent.samplePoints(10000), configurationSpace);
         graph.generateAdjacencies(10, configurationSpace);
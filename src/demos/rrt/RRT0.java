@@ -1,6 +1,7 @@
 package demos.rrt;
 
 import camera.QueasyCam;
+import graphics.Sketch;
 import math.Vec3;
 import robot.acting.SphericalAgent;
 import robot.input.SphericalAgentDescription;
@@ -12,7 +13,7 @@ import robot.planning.rrt.RapidlyExploringRandomTree;
 import java.util.ArrayList;
 import java.util.List;
 
-public class RRT0 extends PApplet {
+public class RRT0 extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -55,9 +56,9 @@ public class RRT0 extends PApplet {
                 SIDE * (0.5f / 20)
         );
 
-        configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescription, sphericalObstacles);
-        sphericalAgent = new SphericalAgent(this, sphericalAgentDescription, configurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
-        rrt = new RapidlyExploringRandomTree(this, startPosition, finishPosition);
+        configurationSpace = new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
+        sphericalAgent = new SphericalAgent(this, this, sphericalAgentDescription, configurationSpace, minCorner, maxCorner, 20f, Vec3.of(1));
+        rrt = new RapidlyExploringRandomTree(this, this, startPosition, finishPosition);
         rrt.growTree(sphericalAgent.samplePoints(100), configurationSpace);
     }
 
@@ -2,6 +2,7 @@ package demos.ttc;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Antipodes extends PApplet {
+public class Antipodes extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -53,7 +54,7 @@ public class Antipodes extends PApplet {
             ));
         }
 
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
         MultiSphericalAgentSystem.INITIAL_AGENT_SPEED = 2f;
 
         MultiSphericalAgentSystem.TTC_K = 3000f;
@@ -66,7 +67,7 @@ public class Antipodes extends PApplet {
         SphericalAgent.DRAW_FUTURE_STATE = false;
         SphericalAgent.DRAW_PATH = false;
 
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
     }
 
     public void draw() {
@@ -2,6 +2,7 @@ package demos.ttc;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Basic extends PApplet {
+public class Basic extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -53,8 +54,8 @@ public class Basic extends PApplet {
                 5
         ));
 
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
         SphericalAgent.DRAW_FUTURE_STATE = false;
         SphericalAgent.DRAW_PATH = true;
     }
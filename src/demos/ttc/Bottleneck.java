@@ -2,6 +2,7 @@ package demos.ttc;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Bottleneck extends PApplet {
+public class Bottleneck extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -51,7 +52,7 @@ public class Bottleneck extends PApplet {
 
         placeAgents(Vec3.of(0, 0f, -SIDE));
 
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
         MultiSphericalAgentSystem.INITIAL_AGENT_SPEED = 1f;
         MultiSphericalAgentSystem.MAX_EDGE_LEN = 20f;
 
@@ -68,7 +69,7 @@ public class Bottleneck extends PApplet {
         SphericalAgent.DRAW_FUTURE_STATE = false;
         SphericalAgent.DRAW_PATH = false;
 
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 1);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 1);
     }
 
     private void placeObstacles(int yOffset, float hole) {
@@ -172,6 +173,10 @@ public class Bottleneck extends PApplet {
             multiSphericalAgentSystem.weightedAStar(weight);
             SEARCH_ALGORITHM = weight + "A*";
         }
+        if (key == '6') {
+            multiSphericalAgentSystem.bidirectionalAStar();
+            SEARCH_ALGORITHM = "bidirectional A*";
+        }
     }
 
     static public void main(String[] passedArgs) {
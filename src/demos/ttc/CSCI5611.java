@@ -4,6 +4,7 @@ import camera.QueasyCam;
 import fixed.Ground;
 import fixed.SphericalObstacle;
 import fixed.SpriteSphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -17,7 +18,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CSCI5611 extends PApplet {
+public class CSCI5611 extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 1000;
@@ -194,7 +195,6 @@ public class CSCI5611 extends PApplet {
         }
 
         PlainConfigurationSpace configurationSpace = new PlainConfigurationSpace(
-                this,
                 sphericalAgentDescriptions.get(0),
                 sphericalObstacles
         );
@@ -220,7 +220,7 @@ public class CSCI5611 extends PApplet {
         SphericalAgent.DRAW_PATH = false;
         SphericalAgent.DRAW_FUTURE_STATE = false;
 
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner);
         // tuning parameters
 
         for (int i = 0; i < 8; i++) {
@@ -2,6 +2,7 @@ package demos.ttc;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
@@ -14,7 +15,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class CrossPaths extends PApplet {
+public class CrossPaths extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -43,7 +44,7 @@ public class CrossPaths extends PApplet {
 
         placeAgents(Vec3.of(0, -20, -SIDE), Vec3.of(0, -20, SIDE * 0.8f));
         placeAgents(Vec3.of(0, -SIDE, -10), Vec3.of(0, SIDE * 0.8f, -10));
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
+        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(sphericalAgentDescriptions.get(0), sphericalObstacles);
         MultiSphericalAgentSystem.INITIAL_AGENT_SPEED = 1f;
 
         MultiSphericalAgentSystem.TTC_K = 2000f;
@@ -58,7 +59,7 @@ public class CrossPaths extends PApplet {
         SphericalAgent.DRAW_FUTURE_STATE = false;
         SphericalAgent.DRAW_PATH = false;
 
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, 2);
     }
 
     private void placeAgents(Vec3 start, Vec3 finish) {
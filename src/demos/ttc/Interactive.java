@@ -2,19 +2,19 @@ package demos.ttc;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.MultiSphericalAgentSystem;
 import robot.acting.SphericalAgent;
 import robot.input.SphericalAgentDescription;
 import robot.planning.multiagentgraph.MultiAgentGraph;
-import robot.sensing.ConfigurationSpace;
-import robot.sensing.PlainConfigurationSpace;
+import robot.sensing.BSHConfigurationSpace;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class Interactive extends PApplet {
+public class Interactive extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -22,6 +22,7 @@ public class Interactive extends PApplet {
     final Vec3 maxCorner = Vec3.of(0, SIDE, SIDE);
 
     List<SphericalObstacle> sphericalObstacles = new ArrayList<>();
+    BSHConfigurationSpace configurationSpace;
     MultiSphericalAgentSystem multiSphericalAgentSystem;
     List<SphericalAgentDescription> sphericalAgentDescriptions = new ArrayList<>();
     QueasyCam cam;
@@ -35,6 +36,7 @@ public class Interactive extends PApplet {
     private boolean placingObjects = true;
     private final int NUM_OBSTACLES = 2;
     private final int NUM_BATCHES = 2;
+    private final float AGENT_RADIUS = 1f;
 
     public void settings() {
         size(WIDTH, HEIGHT, P3D);
@@ -67,6 +69,10 @@ public class Interactive extends PApplet {
     private void reset() {
         sphericalObstacles.clear();
         sphericalAgentDescriptions.clear();
+        // Obstacles are added to the configuration space as they are placed
+        configurationSpace = new BSHConfigurationSpace(this, this,
+                new SphericalAgentDescription(Vec3.zero(), Vec3.zero(), AGENT_RADIUS),
+                new ArrayList<>());
         placingObjects = true;
         cursor.set(0, 0, 0);
     }
@@ -75,12 +81,11 @@ public class Interactive extends PApplet {
         for (int i = 0; i < NUM_BATCHES; i++) {
             placeAgents(startPoints.get(i), finishPoints.get(i));
         }
-        ConfigurationSpace configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescriptions.get(0), sphericalObstacles);
-        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, NUM_BATCHES);
+        multiSphericalAgentSystem = new MultiSphericalAgentSystem(this, this, sphericalAgentDescriptions, configurationSpace, minCorner, maxCorner, NUM_BATCHES);
     }
 
     private void placeAgents(Vec3 start, Vec3 finish) {
-        float agentRadius = 1f;
+        float agentRadius = AGENT_RADIUS;
         float slack = 2f;
         int gridSize = 7;
         for (int i = 0; i < gridSize; i++) {
@@ -155,12 +160,20 @@ public class Interactive extends PApplet {
         if (placingObjects) {
             if (key == 'o') {
                 if (sphericalObstacles.size() < NUM_OBSTACLES) {
-                    sphericalObstacles.add(new SphericalObstacle(
+                    SphericalObstacle obstacle = new SphericalObstacle(
                             this,
                             Vec3.of(cursor),
                             10,
                             Vec3.of(1, 0, 1)
-                    ));
+                    );
+                    sphericalObstacles.add(obstacle);
+                    configurationSpace.addObstacle(obstacle);
+                }
+                return;
+            }
+            if (key == 'u') {
+                if (sphericalObstacles.size() > 0) {
+                    configurationSpace.removeObstacle(sphericalObstacles.remove(sphericalObstacles.size() - 1));
                 }
                 return;
             }
@@ -2,6 +2,7 @@ package demos.unknownterrain;
 
 import camera.QueasyCam;
 import fixed.SphericalObstacle;
+import graphics.Sketch;
 import math.Vec3;
 import processing.core.PApplet;
 import robot.acting.ReplanningSphericalAgent;
@@ -12,7 +13,7 @@ import robot.sensing.PlainConfigurationSpace;
 import java.util.ArrayList;
 import java.util.List;
 
-public class BigBall extends PApplet {
+public class BigBall extends Sketch {
     public static final int WIDTH = 800;
     public static final int HEIGHT = 800;
     public static final int SIDE = 100;
@@ -54,12 +55,13 @@ public class BigBall extends PApplet {
                 finishPosition,
                 SIDE * (0.5f / 20)
         );
-        configurationSpace = new PlainConfigurationSpace(this, sphericalAgentDescription, sphericalObstacles);
+        configurationSpace = new PlainConfigurationSpace(sphericalAgentDescription, sphericalObstacles);
         reset();
     }
 
     private void reset() {
         replanningSphericalAgent = new ReplanningSphericalAgent(
+                this,
                 this,
                 sphericalAgentDescription,
                 configurationSpace,
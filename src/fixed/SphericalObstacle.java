@@ -1,15 +1,15 @@
 package fixed;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 
 public class SphericalObstacle {
-    public final PApplet parent;
+    public final Canvas parent;
     public final Vec3 center;
     public final float radius;
     public final Vec3 color;
 
-    public SphericalObstacle(PApplet parent, Vec3 center, float radius, Vec3 color) {
+    public SphericalObstacle(Canvas parent, Vec3 center, float radius, Vec3 color) {
         this.parent = parent;
         this.center = center;
         this.radius = radius;
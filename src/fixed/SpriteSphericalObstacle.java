@@ -1,14 +1,14 @@
 package fixed;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 import processing.core.PShape;
 
 public class SpriteSphericalObstacle extends SphericalObstacle {
     public final PShape shape;
     public final float normalizedSize;
 
-    public SpriteSphericalObstacle(PApplet parent, Vec3 center, float radius, Vec3 color, PShape shape, float normalizedSize) {
+    public SpriteSphericalObstacle(Canvas parent, Vec3 center, float radius, Vec3 color, PShape shape, float normalizedSize) {
         super(parent, center, radius, color);
         this.shape = shape;
         this.normalizedSize = normalizedSize;
@@ -0,0 +1,46 @@
+package graphics;
+
+// Drawing primitives used by robot and fixed classes, kept free of any rendering library so that
+// sensing, planning and acting can run on headless JVMs. Use Sketch for on-screen rendering and
+// Canvas.HEADLESS when nothing needs to be drawn.
+public interface Canvas {
+    // Same value as processing's PConstants.TRIANGLE
+    int TRIANGLE = 8;
+
+    Canvas HEADLESS = new HeadlessCanvas();
+
+    void pushMatrix();
+
+    void popMatrix();
+
+    void translate(float x, float y, float z);
+
+    void rotateY(float angle);
+
+    void scale(float s);
+
+    void stroke(float r, float g, float b);
+
+    void noStroke();
+
+    void fill(float r, float g, float b);
+
+    void noFill();
+
+    void point(float x, float y, float z);
+
+    void line(float x1, float y1, float z1, float x2, float y2, float z2);
+
+    void box(float size);
+
+    void sphere(float r);
+
+    void beginShape(int kind);
+
+    void vertex(float x, float y, float z);
+
+    void endShape();
+
+    // shape is an opaque handle owned by the rendering backend (a PShape for Sketch)
+    void shape(Object shape);
+}
@@ -0,0 +1,55 @@
+package graphics;
+
+// Canvas that discards every drawing call
+final class HeadlessCanvas implements Canvas {
+    public void pushMatrix() {
+    }
+
+    public void popMatrix() {
+    }
+
+    public void translate(float x, float y, float z) {
+    }
+
+    public void rotateY(float angle) {
+    }
+
+    public void scale(float s) {
+    }
+
+    public void stroke(float r, float g, float b) {
+    }
+
+    public void noStroke() {
+    }
+
+    public void fill(float r, float g, float b) {
+    }
+
+    public void noFill() {
+    }
+
+    public void point(float x, float y, float z) {
+    }
+
+    public void line(float x1, float y1, float z1, float x2, float y2, float z2) {
+    }
+
+    public void box(float size) {
+    }
+
+    public void sphere(float r) {
+    }
+
+    public void beginShape(int kind) {
+    }
+
+    public void vertex(float x, float y, float z) {
+    }
+
+    public void endShape() {
+    }
+
+    public void shape(Object shape) {
+    }
+}
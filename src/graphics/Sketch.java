@@ -0,0 +1,13 @@
+package graphics;
+
+import math.RandomSource;
+import processing.core.PApplet;
+import processing.core.PShape;
+
+// Rendering adapter: a processing sketch that can be handed to robot and fixed classes
+// both as their Canvas and as their RandomSource
+public abstract class Sketch extends PApplet implements Canvas, RandomSource {
+    public void shape(Object shape) {
+        shape((PShape) shape);
+    }
+}
@@ -0,0 +1,26 @@
+package math;
+
+import java.util.Random;
+
+public class JavaRandomSource implements RandomSource {
+    final Random random;
+
+    public JavaRandomSource(long seed) {
+        this(new Random(seed));
+    }
+
+    public JavaRandomSource(Random random) {
+        this.random = random;
+    }
+
+    public float random(float high) {
+        return random.nextFloat() * high;
+    }
+
+    public float random(float low, float high) {
+        if (low >= high) {
+            return low;
+        }
+        return low + random.nextFloat() * (high - low);
+    }
+}
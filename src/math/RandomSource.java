@@ -0,0 +1,13 @@
+package math;
+
+public interface RandomSource {
+    // Uniform sample in [0, high)
+    float random(float high);
+
+    // Uniform sample in [low, high)
+    float random(float low, float high);
+
+    static RandomSource seeded(long seed) {
+        return new JavaRandomSource(seed);
+    }
+}
@@ -2,8 +2,7 @@ package robot.acting;
 
 import fixed.SphericalObstacle;
 import math.Vec3;
-import processing.core.PApplet;
-import processing.core.PConstants;
+import graphics.Canvas;
 
 import java.util.List;
 
@@ -19,11 +18,11 @@ public class FreeAgent {
     Vec3 color;
     float radius;
     Vec3 force;
-    PApplet parent;
+    Canvas parent;
     final Vec3 minCorner;
     final Vec3 maxCorner;
 
-    public FreeAgent(Vec3 center, Vec3 velocity, Vec3 color, float radius, PApplet parent, Vec3 minCorner, Vec3 maxCorner) {
+    public FreeAgent(Vec3 center, Vec3 velocity, Vec3 color, float radius, Canvas parent, Vec3 minCorner, Vec3 maxCorner) {
         this.center = center;
         this.velocity = velocity;
         this.color = color;
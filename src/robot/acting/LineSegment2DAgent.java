@@ -1,7 +1,8 @@
 package robot.acting;
 
+import math.RandomSource;
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 import robot.input.LineSegment2DAgentDescription;
 import robot.sensing.LineSegment2DConfigurationSpace;
 
@@ -12,7 +13,8 @@ public class LineSegment2DAgent {
     public static float NEXT_MILESTONE_HINT_SIZE = 2f;
     public static boolean DRAW_POSITION_ORIENTATION_SPACE_PATH = true;
 
-    final PApplet parent;
+    final Canvas parent;
+    final RandomSource random;
     final LineSegment2DAgentDescription description;
     final LineSegment2DConfigurationSpace configurationSpace;
     final float speed;
@@ -25,8 +27,9 @@ public class LineSegment2DAgent {
     int currentMilestone = 0;
     public boolean isPaused = false;
 
-    public LineSegment2DAgent(final PApplet parent, final LineSegment2DAgentDescription description, final LineSegment2DConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, float speed, Vec3 color) {
+    public LineSegment2DAgent(final Canvas parent, final RandomSource random, final LineSegment2DAgentDescription description, final LineSegment2DConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, float speed, Vec3 color) {
         this.parent = parent;
+        this.random = random;
         this.description = description;
         this.configurationSpace = configurationSpace;
         this.speed = speed;
@@ -70,7 +73,7 @@ public class LineSegment2DAgent {
             }
             // next next milestone lookup
             if (currentMilestone < path.size() - 2) {
-                boolean blocked = configurationSpace.doesEdgeIntersectSomeObstacleStricter(path.get(currentMilestone + 2), pose);
+                boolean blocked = configurationSpace.doesEdgeIntersectSomeObstacle(path.get(currentMilestone + 2), pose);
                 if (!blocked) {
                     currentMilestone++;
                 }
@@ -169,9 +172,9 @@ public class LineSegment2DAgent {
         List<Vec3> samples = new ArrayList<>();
         for (int i = 0; i < numberOfPoints; i++) {
             samples.add(Vec3.of(
-                    parent.random(minCorner.x, maxCorner.x),
-                    parent.random(minCorner.y, maxCorner.y),
-                    parent.random(minCorner.z, maxCorner.z)
+                    random.random(minCorner.x, maxCorner.x),
+                    random.random(minCorner.y, maxCorner.y),
+                    random.random(minCorner.z, maxCorner.z)
             ));
         }
         return samples;
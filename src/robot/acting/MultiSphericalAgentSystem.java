@@ -1,20 +1,31 @@
 package robot.acting;
 
 import fixed.SphericalObstacle;
+import math.RandomSource;
 import math.Vec3;
-import processing.core.PApplet;
-import processing.core.PShape;
+import graphics.Canvas;
 import robot.input.SphericalAgentDescription;
 import robot.planning.multiagentgraph.MultiAgentGraph;
 import robot.sensing.ConfigurationSpace;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class MultiSphericalAgentSystem {
     public static float INITIAL_AGENT_SPEED = 20f;
     public static float MAX_EDGE_LEN = 10f;
     public static int NUM_VERTEX_SAMPLES = 10000;
+    // aStar reads the paths of agents with the same finish from one reverse shortest path tree instead of searching for each
+    public static boolean SHARE_GOAL_SEARCHES = true;
+    // Agents are planned for on PLANNING_POOL at the same time, each search with the scratch of its thread
+    public static boolean PARALLEL_PLANNING = true;
+    public static ForkJoinPool PLANNING_POOL = ForkJoinPool.commonPool();
+    // Landmarks the graph generates for the ALT heuristic of A* searches, 0 for the straight line distance only
+    public static int NUM_LANDMARKS = 0;
 
     public static float TTC_K = 10;
     public static float TTC_MAX_FORCE = 500f;
@@ -23,23 +34,26 @@ public class MultiSphericalAgentSystem {
     public static float TTC_SEPARATION_FORCE_K = 40;
     public static float TTC_COLLISION_CORRECTION_FORCE_K = 10;
 
-    final PApplet parent;
+    final Canvas parent;
+    final RandomSource random;
     final ConfigurationSpace configurationSpace;
     final MultiAgentGraph multiAgentGraph;
+    long numVerticesExplored = 0;
     public List<SphericalAgent> sphericalAgents = new ArrayList<>();
 
-    public MultiSphericalAgentSystem(PApplet parent, List<SphericalAgentDescription> sphericalAgentDescriptions, ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner) {
+    public MultiSphericalAgentSystem(Canvas parent, RandomSource random, List<SphericalAgentDescription> sphericalAgentDescriptions, ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner) {
         this.parent = parent;
+        this.random = random;
         // At least one spherical agent is required
         assert (sphericalAgentDescriptions.size() > 0);
         for (SphericalAgentDescription sphericalAgentDescription : sphericalAgentDescriptions) {
             sphericalAgents.add(
-                    new SphericalAgent(parent,
+                    new SphericalAgent(parent, random,
                             sphericalAgentDescription,
                             configurationSpace,
                             minCorner, maxCorner,
                             INITIAL_AGENT_SPEED,
-                            Vec3.of(parent.random(1), parent.random(1), parent.random(1))
+                            Vec3.of(random.random(1), random.random(1), random.random(1))
                     )
             );
         }
@@ -47,21 +61,25 @@ public class MultiSphericalAgentSystem {
         this.multiAgentGraph = new MultiAgentGraph(parent, sphericalAgentDescriptions);
         this.multiAgentGraph.generateVertices(sphericalAgents.get(0).samplePoints(NUM_VERTEX_SAMPLES), configurationSpace);
         this.multiAgentGraph.generateAdjacencies(MAX_EDGE_LEN, configurationSpace);
+        if (NUM_LANDMARKS > 0) {
+            this.multiAgentGraph.generateLandmarks(NUM_LANDMARKS);
+        }
     }
 
-    public MultiSphericalAgentSystem(PApplet parent, List<SphericalAgentDescription> sphericalAgentDescriptions, ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, int numBatches) {
+    public MultiSphericalAgentSystem(Canvas parent, RandomSource random, List<SphericalAgentDescription> sphericalAgentDescriptions, ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, int numBatches) {
         this.parent = parent;
+        this.random = random;
         // At least one spherical agent is required
         assert (sphericalAgentDescriptions.size() > 0);
         // Assert atleast one batch
         assert (numBatches > 0);
-        Vec3 color = Vec3.of(parent.random(1), parent.random(1), parent.random(1));
+        Vec3 color = Vec3.of(random.random(1), random.random(1), random.random(1));
         for (int i = 0; i < sphericalAgentDescriptions.size(); i++) {
             if (i % (sphericalAgentDescriptions.size() / numBatches) == 0) {
-                color = Vec3.of(parent.random(1), parent.random(1), parent.random(1));
+                color = Vec3.of(random.random(1), random.random(1), random.random(1));
             }
             sphericalAgents.add(
-                    new SphericalAgent(parent,
+                    new SphericalAgent(parent, random,
                             sphericalAgentDescriptions.get(i),
                             configurationSpace,
                             minCorner, maxCorner,
@@ -74,6 +92,9 @@ public class MultiSphericalAgentSystem {
         this.multiAgentGraph = new MultiAgentGraph(parent, sphericalAgentDescriptions);
         this.multiAgentGraph.generateVertices(sphericalAgents.get(0).samplePoints(NUM_VERTEX_SAMPLES), configurationSpace);
         this.multiAgentGraph.generateAdjacencies(MAX_EDGE_LEN, configurationSpace);
+        if (NUM_LANDMARKS > 0) {
+            this.multiAgentGraph.generateLandmarks(NUM_LANDMARKS);
+        }
     }
 
     public void update(float dt) {
@@ -219,7 +240,7 @@ public class MultiSphericalAgentSystem {
         multiAgentGraph.draw();
     }
 
-    public void draw(List<PShape> agentWalkCycleShapes, float size) {
+    public void draw(List<?> agentWalkCycleShapes, float size) {
         // agents
         for (SphericalAgent agent : sphericalAgents) {
             agent.draw(agentWalkCycleShapes, size);
@@ -246,42 +267,68 @@ public class MultiSphericalAgentSystem {
         }
     }
 
-    public void dfs() {
+    // Paths are set on the calling thread once all are found, in order of agents
+    // Each search counts the vertices it explored on its own thread, the counts are read right after it and summed here
+    private void plan(IntFunction<List<Vec3>> search) {
+        List<List<Vec3>> paths;
+        int[] numVerticesExploredPerAgent = new int[sphericalAgents.size()];
+        IntFunction<List<Vec3>> countingSearch = i -> {
+            List<Vec3> path = search.apply(i);
+            numVerticesExploredPerAgent[i] = multiAgentGraph.numVerticesExplored();
+            return path;
+        };
+        if (PARALLEL_PLANNING && multiAgentGraph.canSearchConcurrently()) {
+            paths = PLANNING_POOL.submit(() -> IntStream.range(0, sphericalAgents.size()).parallel()
+                    .mapToObj(countingSearch)
+                    .collect(Collectors.toList())
+            ).join();
+        } else {
+            paths = new ArrayList<>();
+            for (int i = 0; i < sphericalAgents.size(); i++) {
+                paths.add(countingSearch.apply(i));
+            }
+        }
+        numVerticesExplored = 0;
         for (int i = 0; i < sphericalAgents.size(); i++) {
-            SphericalAgent agent = sphericalAgents.get(i);
-            agent.setPath(multiAgentGraph.dfs(i));
+            sphericalAgents.get(i).setPath(paths.get(i));
+            numVerticesExplored += numVerticesExploredPerAgent[i];
         }
     }
 
+    // Vertices explored by all searches of the last plan, with MultiAgentGraph.LOG_SEARCHES off the only report of them
+    public long numVerticesExplored() {
+        return numVerticesExplored;
+    }
+
+    public void dfs() {
+        plan(multiAgentGraph::dfs);
+    }
+
     public void bfs() {
-        for (int i = 0; i < sphericalAgents.size(); i++) {
-            SphericalAgent agent = sphericalAgents.get(i);
-            agent.setPath(multiAgentGraph.bfs(i));
-        }
+        plan(multiAgentGraph::bfs);
     }
 
     public void ucs() {
-        for (int i = 0; i < sphericalAgents.size(); i++) {
-            SphericalAgent agent = sphericalAgents.get(i);
-            agent.setPath(multiAgentGraph.ucs(i));
-        }
+        plan(multiAgentGraph::ucs);
     }
 
     public void aStar() {
-        for (int i = 0; i < sphericalAgents.size(); i++) {
-            SphericalAgent agent = sphericalAgents.get(i);
-            agent.setPath(multiAgentGraph.aStar(i));
-        }
+        plan(SHARE_GOAL_SEARCHES ? multiAgentGraph::shortestPath : multiAgentGraph::aStar);
     }
 
     public void weightedAStar(float epsilon) {
-        for (int i = 0; i < sphericalAgents.size(); i++) {
-            SphericalAgent agent = sphericalAgents.get(i);
-            agent.setPath(multiAgentGraph.weightedAStar(epsilon, i));
-        }
+        plan(i -> multiAgentGraph.weightedAStar(epsilon, i));
+    }
+
+    public void bidirectionalAStar() {
+        plan(multiAgentGraph::bidirectionalAStar);
+    }
+
+    public void contractionHierarchySearch() {
+        plan(multiAgentGraph::contractionHierarchySearch);
     }
 
-    public void draw(List<PShape> wings) {
+    public void draw(List<?> wings) {
         int j = 0;
         for (int i = 0; i < sphericalAgents.size(); i++) {
             SphericalAgent agent = sphericalAgents.get(i);
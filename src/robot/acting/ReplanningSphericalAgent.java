@@ -1,7 +1,8 @@
 package robot.acting;
 
+import math.RandomSource;
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 import robot.input.SphericalAgentDescription;
 import robot.planning.replanninggraph.ReplanningGraph;
 import robot.planning.replanninggraph.Vertex;
@@ -12,14 +13,15 @@ import java.util.List;
 
 public class ReplanningSphericalAgent {
     public enum Algorithm {
-        DFS, BFS, UCS, AStar, WeightedAStar
+        DFS, BFS, UCS, AStar, WeightedAStar, BidirectionalAStar
     }
 
     public static float MILESTONE_REACHED_RADIUS = 2f;
     // Should be big enough such that next milestone lies inside sense radius and is therefore sensed
     public static float SENSE_RADIUS = 20f;
 
-    final PApplet parent;
+    final Canvas parent;
+    final RandomSource random;
     final SphericalAgentDescription description;
     final ConfigurationSpace configurationSpace;
     final float speed;
@@ -35,7 +37,8 @@ public class ReplanningSphericalAgent {
     float distanceCovered = 0;
     public boolean isPaused = false;
 
-    public ReplanningSphericalAgent(final PApplet parent,
+    public ReplanningSphericalAgent(final Canvas parent,
+                                    final RandomSource random,
                                     final SphericalAgentDescription description,
                                     final ConfigurationSpace configurationSpace,
                                     Vec3 minCorner, Vec3 maxCorner,
@@ -45,6 +48,7 @@ public class ReplanningSphericalAgent {
                                     float maxEdgeLen,
                                     Algorithm algorithm) {
         this.parent = parent;
+        this.random = random;
         this.description = description;
         this.configurationSpace = configurationSpace;
         this.speed = speed;
@@ -179,6 +183,9 @@ public class ReplanningSphericalAgent {
             case WeightedAStar:
                 path = replanningGraph.weightedAStar(path.get(currentMilestone), 1.5f);
                 break;
+            case BidirectionalAStar:
+                path = replanningGraph.bidirectionalAStar(path.get(currentMilestone));
+                break;
         }
         currentMilestone = 0;
     }
@@ -207,9 +214,9 @@ public class ReplanningSphericalAgent {
         List<Vec3> samples = new ArrayList<>();
         for (int i = 0; i < numberOfPoints; i++) {
             samples.add(Vec3.of(
-                    parent.random(minCorner.x, maxCorner.x),
-                    parent.random(minCorner.y, maxCorner.y),
-                    parent.random(minCorner.z, maxCorner.z)
+                    random.random(minCorner.x, maxCorner.x),
+                    random.random(minCorner.y, maxCorner.y),
+                    random.random(minCorner.z, maxCorner.z)
             ));
         }
         return samples;
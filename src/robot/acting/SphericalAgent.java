@@ -1,9 +1,9 @@
 package robot.acting;
 
 import fixed.SphericalObstacle;
+import math.RandomSource;
 import math.Vec3;
-import processing.core.PApplet;
-import processing.core.PShape;
+import graphics.Canvas;
 import robot.input.SphericalAgentDescription;
 import robot.sensing.ConfigurationSpace;
 
@@ -23,7 +23,8 @@ public class SphericalAgent {
     public static float IMPACT_RADIUS = 10f;
     public static float REPULSION = 0.0001f;
 
-    final PApplet parent;
+    final Canvas parent;
+    final RandomSource random;
     final SphericalAgentDescription description;
     final ConfigurationSpace configurationSpace;
     final float speed;
@@ -46,8 +47,9 @@ public class SphericalAgent {
 
     public boolean isPaused = false;
 
-    public SphericalAgent(final PApplet parent, final SphericalAgentDescription description, final ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, float speed, Vec3 color) {
+    public SphericalAgent(final Canvas parent, final RandomSource random, final SphericalAgentDescription description, final ConfigurationSpace configurationSpace, Vec3 minCorner, Vec3 maxCorner, float speed, Vec3 color) {
         this.parent = parent;
+        this.random = random;
         this.description = description;
         this.configurationSpace = configurationSpace;
         this.speed = speed;
@@ -354,7 +356,7 @@ public class SphericalAgent {
         }
     }
 
-    public void draw(PShape shape, float normalizedSize) {
+    public void draw(Object shape, float normalizedSize) {
         if (DRAW_PATH) {
             // path
             parent.stroke(color.x, color.y, color.z);
@@ -392,7 +394,7 @@ public class SphericalAgent {
         }
     }
 
-    public void draw(List<PShape> shapes, float normalizedSize) {
+    public void draw(List<?> shapes, float normalizedSize) {
         if (DRAW_PATH) {
             // path
             parent.stroke(color.x, color.y, color.z);
@@ -460,9 +462,9 @@ public class SphericalAgent {
         List<Vec3> samples = new ArrayList<>();
         for (int i = 0; i < numberOfPoints; i++) {
             samples.add(Vec3.of(
-                    parent.random(minCorner.x, maxCorner.x),
-                    parent.random(minCorner.y, maxCorner.y),
-                    parent.random(minCorner.z, maxCorner.z)
+                    random.random(minCorner.x, maxCorner.x),
+                    random.random(minCorner.y, maxCorner.y),
+                    random.random(minCorner.z, maxCorner.z)
             ));
         }
         return samples;
@@ -0,0 +1,147 @@
+package robot.planning;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+// Binary min heap of vertex indices in [0, capacity) ordered by float keys, each index at most once
+// Keeps the heap position of every index so that keys can be decreased in place instead of inserting duplicates
+// Reused across searches, clear only touches the indices still in the heap
+public class IndexedMinHeap {
+    private int[] heap = new int[0];
+    private float[] keys = new float[0];
+    // Position of each index in heap, -1 if not in it
+    private int[] positions = new int[0];
+    private int size = 0;
+
+    public IndexedMinHeap(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    // Indices up to capacity - 1 can be inserted afterwards
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positions.length) {
+            return;
+        }
+        int oldCapacity = positions.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int index) {
+        return positions[index] != -1;
+    }
+
+    public float key(int index) {
+        return keys[index];
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public void insert(int index, float key) {
+        if (contains(index)) {
+            throw new IllegalArgumentException("Index already in heap");
+        }
+        keys[index] = key;
+        heap[size] = index;
+        positions[index] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    // key must not be larger than the current key of index
+    public void decreaseKey(int index, float key) {
+        if (key > keys[index]) {
+            throw new IllegalArgumentException("Key can only decrease");
+        }
+        keys[index] = key;
+        siftUp(positions[index]);
+    }
+
+    // Inserts index or decreases its key, whichever applies, larger keys of indices already in the heap are ignored
+    public void insertOrDecreaseKey(int index, float key) {
+        if (!contains(index)) {
+            insert(index, key);
+        } else if (key < keys[index]) {
+            decreaseKey(index, key);
+        }
+    }
+
+    // Replaces the key of every index in the heap by newKey of it, then restores the heap order bottom up in linear time
+    public void rekey(IntToDoubleFunction newKey) {
+        for (int i = 0; i < size; i++) {
+            keys[heap[i]] = (float) newKey.applyAsDouble(heap[i]);
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    public int peekMin() {
+        return heap[0];
+    }
+
+    public int popMin() {
+        int min = heap[0];
+        size--;
+        positions[min] = -1;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int position) {
+        int index = heap[position];
+        float key = keys[index];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[heap[parent]] <= key) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = index;
+        positions[index] = position;
+    }
+
+    private void siftDown(int position) {
+        int index = heap[position];
+        float key = keys[index];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (key <= keys[heap[child]]) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = index;
+        positions[index] = position;
+    }
+}
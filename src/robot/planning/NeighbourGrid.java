@@ -0,0 +1,152 @@
+package robot.planning;
+
+import math.Vec3;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Uniform grid over a fixed set of points for neighbour queries of a fixed radius
+// Cells are at least radius wide, so the neighbours of a point lie in its own cell and the 26 around it
+// Building is O(n) and a query only looks at the points in those cells, instead of comparing all pairs
+// Points are stored in cells the same way GridConfigurationSpace stores obstacles, as one array with per cell offsets
+public class NeighbourGrid {
+    // Cells grow beyond radius when there would be more than this many per point, e.g. for sparse 3D samples
+    public static int MAX_CELLS_PER_POINT = 4;
+
+    // Reused across queries to avoid allocating, one per thread when querying in parallel
+    public static class Neighbours {
+        public int[] indices = new int[64];
+        public int size = 0;
+
+        void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, 2 * indices.length);
+            }
+            indices[size++] = index;
+        }
+    }
+
+    final float radius;
+    final float[] x, y, z;
+    final float minX, minY, minZ;
+    final float cellSize;
+    final int numCellsX, numCellsY, numCellsZ;
+    // Points of cell c are cellPoints[cellStart[c]] .. cellPoints[cellStart[c + 1] - 1], in increasing order
+    final int[] cellStart;
+    final int[] cellPoints;
+
+    public NeighbourGrid(List<Vec3> points, float radius) {
+        this(coordinates(points), radius);
+    }
+
+    // Point i is at (coordinates[3i], coordinates[3i + 1], coordinates[3i + 2])
+    public NeighbourGrid(float[] coordinates, float radius) {
+        int n = coordinates.length / 3;
+        this.radius = radius;
+        x = new float[n];
+        y = new float[n];
+        z = new float[n];
+        float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE, loZ = Float.MAX_VALUE;
+        float hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE, hiZ = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            x[i] = coordinates[3 * i];
+            y[i] = coordinates[3 * i + 1];
+            z[i] = coordinates[3 * i + 2];
+            loX = Math.min(loX, x[i]);
+            loY = Math.min(loY, y[i]);
+            loZ = Math.min(loZ, z[i]);
+            hiX = Math.max(hiX, x[i]);
+            hiY = Math.max(hiY, y[i]);
+            hiZ = Math.max(hiZ, z[i]);
+        }
+        if (n == 0) {
+            loX = loY = loZ = hiX = hiY = hiZ = 0;
+        }
+        minX = loX;
+        minY = loY;
+        minZ = loZ;
+
+        // Slightly wider than radius so that rounding never puts two neighbours two cells apart
+        float size = radius > 0 ? radius * 1.001f : 1;
+        while ((long) cellCount(hiX - loX, size) * cellCount(hiY - loY, size) * cellCount(hiZ - loZ, size)
+                > (long) MAX_CELLS_PER_POINT * n + 1) {
+            size *= 2;
+        }
+        cellSize = size;
+        numCellsX = cellCount(hiX - loX, size);
+        numCellsY = cellCount(hiY - loY, size);
+        numCellsZ = cellCount(hiZ - loZ, size);
+
+        // Counting sort of points by cell, stable so points stay in increasing order within each cell
+        int numCells = numCellsX * numCellsY * numCellsZ;
+        int[] pointCell = new int[n];
+        cellStart = new int[numCells + 1];
+        for (int i = 0; i < n; i++) {
+            pointCell[i] = cellIndex(cellCoordinate(x[i], minX, numCellsX),
+                    cellCoordinate(y[i], minY, numCellsY),
+                    cellCoordinate(z[i], minZ, numCellsZ));
+            cellStart[pointCell[i] + 1]++;
+        }
+        for (int c = 0; c < numCells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellPoints = new int[n];
+        int[] next = Arrays.copyOf(cellStart, numCells);
+        for (int i = 0; i < n; i++) {
+            cellPoints[next[pointCell[i]]++] = i;
+        }
+    }
+
+    private static float[] coordinates(List<Vec3> points) {
+        float[] coordinates = new float[3 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Vec3 p = points.get(i);
+            coordinates[3 * i] = p.x;
+            coordinates[3 * i + 1] = p.y;
+            coordinates[3 * i + 2] = p.z;
+        }
+        return coordinates;
+    }
+
+    private static int cellCount(float extent, float size) {
+        return (int) (extent / size) + 1;
+    }
+
+    private int cellCoordinate(float coordinate, float min, int numCells) {
+        int c = (int) ((coordinate - min) / cellSize);
+        return c < 0 ? 0 : (c >= numCells ? numCells - 1 : c);
+    }
+
+    private int cellIndex(int cx, int cy, int cz) {
+        return (cx * numCellsY + cy) * numCellsZ + cz;
+    }
+
+    // Collects the points j > i within radius of point i into neighbours in increasing order of j,
+    // which is the order the all pairs loop visits them in, distance is computed exactly as Vec3.norm does
+    public void neighboursAfter(int i, Neighbours neighbours) {
+        neighbours.size = 0;
+        int cx = cellCoordinate(x[i], minX, numCellsX);
+        int cy = cellCoordinate(y[i], minY, numCellsY);
+        int cz = cellCoordinate(z[i], minZ, numCellsZ);
+        for (int nx = Math.max(0, cx - 1); nx <= Math.min(numCellsX - 1, cx + 1); nx++) {
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(numCellsY - 1, cy + 1); ny++) {
+                for (int nz = Math.max(0, cz - 1); nz <= Math.min(numCellsZ - 1, cz + 1); nz++) {
+                    int cell = cellIndex(nx, ny, nz);
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int j = cellPoints[k];
+                        if (j <= i) {
+                            continue;
+                        }
+                        float dx = x[i] - x[j];
+                        float dy = y[i] - y[j];
+                        float dz = z[i] - z[j];
+                        if ((float) Math.sqrt(dx * dx + dy * dy + dz * dz) <= radius) {
+                            neighbours.add(j);
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(neighbours.indices, 0, neighbours.size);
+    }
+}
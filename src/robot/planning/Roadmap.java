@@ -0,0 +1,99 @@
+package robot.planning;
+
+import java.util.Arrays;
+
+// Undirected roadmap in compressed sparse row form, each edge is stored once from each end
+// The neighbours of vertex v are targets[offsets[v]] .. targets[offsets[v + 1] - 1] in the order their edges were added,
+// with the length of each of those edges at the same index of edgeLengths
+// Searches walk these primitive arrays instead of per vertex lists of neighbour objects, edge lengths are computed once
+public class Roadmap {
+    // Target of an edge that has been removed, searches skip it
+    public static final int REMOVED = -1;
+
+    public final int numVertices;
+    // Vertex v is at (positions[3v], positions[3v + 1], positions[3v + 2])
+    public final float[] positions;
+    public final int[] offsets;
+    public final int[] targets;
+    public final float[] edgeLengths;
+
+    private Roadmap(float[] positions, int[] offsets, int[] targets, float[] edgeLengths) {
+        this.numVertices = positions.length / 3;
+        this.positions = positions;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edgeLengths = edgeLengths;
+    }
+
+    public static Roadmap empty() {
+        return new Roadmap(new float[0], new int[1], new int[0], new float[0]);
+    }
+
+    // Including removed edges
+    public int numEdges() {
+        return targets.length / 2;
+    }
+
+    // New roadmap over positions, which start with the vertices of this one, with edges (edges[2k], edges[2k + 1])
+    // for k < numNewEdges appended after the existing edges of both ends in order of k
+    // Gives the same neighbour order as adding each edge to a list of neighbours at both ends, one after another
+    public Roadmap withEdges(float[] positions, int[] edges, int numNewEdges) {
+        int n = positions.length / 3;
+        if (n < numVertices) {
+            throw new IllegalArgumentException("Vertices can only be added");
+        }
+        int[] newOffsets = new int[n + 1];
+        for (int v = 0; v < numVertices; v++) {
+            newOffsets[v + 1] = offsets[v + 1] - offsets[v];
+        }
+        for (int k = 0; k < 2 * numNewEdges; k++) {
+            newOffsets[edges[k] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] newTargets = new int[newOffsets[n]];
+        float[] newEdgeLengths = new float[newOffsets[n]];
+        int[] next = Arrays.copyOf(newOffsets, n);
+        for (int v = 0; v < numVertices; v++) {
+            int degree = offsets[v + 1] - offsets[v];
+            System.arraycopy(targets, offsets[v], newTargets, next[v], degree);
+            System.arraycopy(edgeLengths, offsets[v], newEdgeLengths, next[v], degree);
+            next[v] += degree;
+        }
+        for (int k = 0; k < numNewEdges; k++) {
+            int u = edges[2 * k];
+            int v = edges[2 * k + 1];
+            float length = distance(positions, u, v);
+            newTargets[next[u]] = v;
+            newEdgeLengths[next[u]++] = length;
+            newTargets[next[v]] = u;
+            newEdgeLengths[next[v]++] = length;
+        }
+        return new Roadmap(positions, newOffsets, newTargets, newEdgeLengths);
+    }
+
+    // Same float arithmetic as Vec3.minus followed by Vec3.norm
+    private static float distance(float[] positions, int u, int v) {
+        float dx = positions[3 * u] - positions[3 * v];
+        float dy = positions[3 * u + 1] - positions[3 * v + 1];
+        float dz = positions[3 * u + 2] - positions[3 * v + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // Removes the edge between u and v from both ends if present, remaining neighbours keep their order
+    public void removeEdge(int u, int v) {
+        removeTarget(u, v);
+        removeTarget(v, u);
+    }
+
+    private void removeTarget(int from, int target) {
+        for (int k = offsets[from]; k < offsets[from + 1]; k++) {
+            if (targets[k] == target) {
+                targets[k] = REMOVED;
+                return;
+            }
+        }
+    }
+}
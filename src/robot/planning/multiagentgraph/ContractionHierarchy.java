@@ -0,0 +1,540 @@
+package robot.planning.multiagentgraph;
+
+import robot.planning.IndexedMinHeap;
+import robot.planning.Roadmap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Contraction hierarchy over the roadmap of a MultiAgentGraph, queries search upward from both ends
+class ContractionHierarchy {
+    // Witness searches give up after settling this many vertices, which only adds shortcuts that were not needed
+    static int MAX_WITNESS_SETTLED = 256;
+    // Vertices with more neighbours left than this are not contracted, they form a core searched in both directions
+    static int MAX_CONTRACTED_DEGREE = 100;
+
+    // Position of each vertex in contraction order, the same for all core vertices, -1 for vertices left out
+    final int[] rank;
+    // Edges from each vertex to neighbours contracted after it, and between core vertices at both ends, in compressed sparse row form
+    final int[] offsets;
+    final int[] targets;
+    final float[] lengths;
+    // Vertex a shortcut skips, -1 for roadmap edges
+    final int[] middles;
+    final int numShortcuts;
+    final int numCoreVertices;
+
+    private ContractionHierarchy(int[] rank, int[] offsets, int[] targets, float[] lengths, int[] middles, int numShortcuts, int numCoreVertices) {
+        this.rank = rank;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.lengths = lengths;
+        this.middles = middles;
+        this.numShortcuts = numShortcuts;
+        this.numCoreVertices = numCoreVertices;
+    }
+
+    static ContractionHierarchy build(Roadmap roadmap, BitSet verticesInsideObstacles) {
+        return new Builder(roadmap, verticesInsideObstacles).build();
+    }
+
+    boolean contains(int v) {
+        return v < rank.length && rank[v] != -1;
+    }
+
+    // Roadmap vertices of the shortest path from start to one of the starts of backward, null if there is none
+    int[] shortestPath(SearchScratch forward, int start, SearchScratch backward) {
+        float shortest = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        int numVerticesExplored = 0;
+        boolean isForward = true;
+        forward.reach(start, start, 0);
+        forward.openSet.insert(start, 0);
+        if (backward.isReached(start)) {
+            shortest = 0;
+            meeting = start;
+        }
+        while (!done(forward, shortest) || !done(backward, shortest)) {
+            if (done(isForward ? forward : backward, shortest)) {
+                isForward = !isForward;
+            }
+            SearchScratch scratch = isForward ? forward : backward;
+            SearchScratch other = isForward ? backward : forward;
+            isForward = !isForward;
+            int current = scratch.openSet.popMin();
+            numVerticesExplored++;
+            scratch.close(current);
+            float distance = scratch.distanceFromStart(current);
+            if (isStalled(scratch, current, distance)) {
+                continue;
+            }
+            for (int k = offsets[current]; k < offsets[current + 1]; k++) {
+                int neighbour = targets[k];
+                float neighbourDistance = distance + lengths[k];
+                if (scratch.isReached(neighbour) && neighbourDistance >= scratch.distanceFromStart(neighbour)) {
+                    continue;
+                }
+                scratch.reach(neighbour, current, neighbourDistance);
+                scratch.openSet.insertOrDecreaseKey(neighbour, neighbourDistance);
+                if (other.isReached(neighbour) && neighbourDistance + other.distanceFromStart(neighbour) < shortest) {
+                    shortest = neighbourDistance + other.distanceFromStart(neighbour);
+                    meeting = neighbour;
+                }
+            }
+        }
+        forward.numVerticesExplored = numVerticesExplored;
+        if (meeting == -1) {
+            return null;
+        }
+
+        // Up from the start of forward to meeting, then down to a start of backward
+        int length = 1;
+        for (int v = meeting; forward.predecessor(v) != v; v = forward.predecessor(v)) {
+            length++;
+        }
+        for (int v = meeting; backward.predecessor(v) != v; v = backward.predecessor(v)) {
+            length++;
+        }
+        int[] hierarchyPath = new int[length];
+        int i = 0;
+        for (int v = meeting; forward.predecessor(v) != v; v = forward.predecessor(v)) {
+            hierarchyPath[i++] = forward.predecessor(v);
+        }
+        reverse(hierarchyPath, i);
+        hierarchyPath[i++] = meeting;
+        for (int v = meeting; backward.predecessor(v) != v; v = backward.predecessor(v)) {
+            hierarchyPath[i++] = backward.predecessor(v);
+        }
+        return unpack(hierarchyPath);
+    }
+
+    private static boolean done(SearchScratch scratch, float shortest) {
+        return scratch.openSet.isEmpty() || scratch.openSet.key(scratch.openSet.peekMin()) >= shortest;
+    }
+
+    // Reached by a shorter path down from a neighbour contracted later than through the edge the search took
+    private boolean isStalled(SearchScratch scratch, int v, float distance) {
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            int neighbour = targets[k];
+            if (scratch.isReached(neighbour) && scratch.distanceFromStart(neighbour) + lengths[k] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void reverse(int[] array, int length) {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    // Replaces each shortcut on the path by the two edges it stands for, until only roadmap edges are left
+    private int[] unpack(int[] hierarchyPath) {
+        int[] path = new int[2 * hierarchyPath.length];
+        int length = 0;
+        path[length++] = hierarchyPath[0];
+        // Pairs of ends of edges still to unpack, the next one on top
+        int[] stack = new int[16];
+        for (int i = 1; i < hierarchyPath.length; i++) {
+            int top = 0;
+            stack[top++] = hierarchyPath[i - 1];
+            stack[top++] = hierarchyPath[i];
+            while (top > 0) {
+                int b = stack[--top];
+                int a = stack[--top];
+                int middle = middles[edgeBetween(a, b)];
+                if (middle == -1) {
+                    if (length == path.length) {
+                        path = Arrays.copyOf(path, 2 * path.length);
+                    }
+                    path[length++] = b;
+                    continue;
+                }
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[top++] = middle;
+                stack[top++] = b;
+                stack[top++] = a;
+                stack[top++] = middle;
+            }
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    // Stored with whichever end was contracted first
+    private int edgeBetween(int a, int b) {
+        int low = rank[a] < rank[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int k = offsets[low]; k < offsets[low + 1]; k++) {
+            if (targets[k] == high) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("No edge between " + a + " and " + b);
+    }
+
+    private static class Builder {
+        final int n;
+        // Edges between vertices not yet contracted, at both ends
+        final int[][] neighbours;
+        final float[][] neighbourLengths;
+        final int[][] neighbourMiddles;
+        final int[] degree;
+        final boolean[] isContracted;
+        final int[] numContractedNeighbours;
+        final int[] rank;
+        // Witness searches, generation stamped like SearchScratch
+        final float[] witnessDistance;
+        final int[] witnessGeneration;
+        int currentWitnessGeneration = 0;
+        // Neighbours of the vertex being contracted a witness search still has to find a path to, which is no longer than
+        // the bound, those stamped with the current generation
+        final int[] targetGeneration;
+        final float[] targetBound;
+        // Edges between the neighbours of the vertex being contracted, indexed by their place among its neighbours
+        final int[] localGeneration;
+        final int[] localIndex;
+        int currentLocalGeneration = 0;
+        float[] localLengths = new float[0];
+        // Neighbours of the source of a two edge witness check and their distances
+        final int[] twoEdgeGeneration;
+        final float[] twoEdgeDistance;
+        int currentTwoEdgeGeneration = 0;
+        final IndexedMinHeap witnessOpenSet;
+        // Upward edges in contraction order, placed into rows at the end
+        int numUpwardEdges = 0;
+        int[] upwardSources = new int[1024];
+        int[] upwardTargets = new int[1024];
+        float[] upwardLengths = new float[1024];
+        int[] upwardMiddles = new int[1024];
+        int numShortcuts = 0;
+        int numCoreVertices = 0;
+
+        Builder(Roadmap roadmap, BitSet verticesInsideObstacles) {
+            n = roadmap.numVertices;
+            neighbours = new int[n][];
+            neighbourLengths = new float[n][];
+            neighbourMiddles = new int[n][];
+            degree = new int[n];
+            isContracted = new boolean[n];
+            numContractedNeighbours = new int[n];
+            rank = new int[n];
+            Arrays.fill(rank, -1);
+            witnessDistance = new float[n];
+            witnessGeneration = new int[n];
+            targetGeneration = new int[n];
+            targetBound = new float[n];
+            localGeneration = new int[n];
+            localIndex = new int[n];
+            twoEdgeGeneration = new int[n];
+            twoEdgeDistance = new float[n];
+            witnessOpenSet = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                int rowLength = roadmap.offsets[v + 1] - roadmap.offsets[v];
+                neighbours[v] = new int[rowLength];
+                neighbourLengths[v] = new float[rowLength];
+                neighbourMiddles[v] = new int[rowLength];
+                // Left out vertices count as contracted, so that they are never contracted or passed through
+                isContracted[v] = verticesInsideObstacles.get(v);
+            }
+            for (int v = 0; v < n; v++) {
+                if (isContracted[v]) {
+                    continue;
+                }
+                for (int k = roadmap.offsets[v]; k < roadmap.offsets[v + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour != Roadmap.REMOVED && neighbour != v && !isContracted[neighbour]) {
+                        addOrShortenEdge(v, neighbour, roadmap.edgeLengths[k], -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            // Lazy updates, a vertex whose priority went up since it was queued goes back if it is no longer the smallest
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                if (!isContracted[v]) {
+                    queue.insert(v, priority(v));
+                }
+            }
+            int numContracted = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.popMin();
+                float priority = priority(v);
+                if (!queue.isEmpty() && priority > queue.key(queue.peekMin())) {
+                    queue.insert(v, priority);
+                    continue;
+                }
+                if (degree[v] > MAX_CONTRACTED_DEGREE) {
+                    continue;
+                }
+                contract(v, false);
+                rank[v] = numContracted++;
+            }
+            // The core ranks above all contracted vertices and equal among itself, with its edges kept at both ends,
+            // so that upward searches run through it like plain Dijkstra and edgeBetween still finds them
+            for (int v = 0; v < n; v++) {
+                if (isContracted[v]) {
+                    continue;
+                }
+                rank[v] = numContracted;
+                numCoreVertices++;
+                for (int i = 0; i < degree[v]; i++) {
+                    addUpwardEdge(v, neighbours[v][i], neighbourLengths[v][i], neighbourMiddles[v][i]);
+                }
+            }
+
+            int[] offsets = new int[n + 1];
+            for (int k = 0; k < numUpwardEdges; k++) {
+                offsets[upwardSources[k] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] targets = new int[numUpwardEdges];
+            float[] lengths = new float[numUpwardEdges];
+            int[] middles = new int[numUpwardEdges];
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int k = 0; k < numUpwardEdges; k++) {
+                int row = next[upwardSources[k]]++;
+                targets[row] = upwardTargets[k];
+                lengths[row] = upwardLengths[k];
+                middles[row] = upwardMiddles[k];
+            }
+            return new ContractionHierarchy(rank, offsets, targets, lengths, middles, numShortcuts, numCoreVertices);
+        }
+
+        // Edge difference, shortcuts contracting v would add less edges it would remove, plus its contracted neighbours,
+        // which spreads contraction evenly over the roadmap
+        private float priority(int v) {
+            return contract(v, true) - degree[v] + numContractedNeighbours[v];
+        }
+
+        // Number of shortcuts needed, only added unless simulating, pairs with a one or two edge witness need no search
+        private int contract(int v, boolean isSimulation) {
+            int[] vNeighbours = neighbours[v];
+            float[] vLengths = neighbourLengths[v];
+            int vDegree = degree[v];
+            fillLocalLengths(v);
+            float maxLength = 0;
+            for (int i = 0; i < vDegree; i++) {
+                maxLength = Math.max(maxLength, vLengths[i]);
+            }
+            int numNeeded = 0;
+            for (int i = 0; i < vDegree - 1; i++) {
+                int u = vNeighbours[i];
+                currentWitnessGeneration++;
+                int numTargets = 0;
+                for (int j = i + 1; j < vDegree; j++) {
+                    if (!hasLocalWitness(i, j, vDegree, vLengths[i] + vLengths[j])) {
+                        targetGeneration[vNeighbours[j]] = currentWitnessGeneration;
+                        targetBound[vNeighbours[j]] = vLengths[i] + vLengths[j];
+                        numTargets++;
+                    }
+                }
+                if (numTargets > 0 && !isSimulation) {
+                    numTargets = twoEdgeWitnesses(u, v, numTargets);
+                }
+                if (numTargets > 0 && !isSimulation) {
+                    witnessSearch(u, v, vLengths[i] + maxLength, numTargets);
+                }
+                for (int j = i + 1; j < vDegree; j++) {
+                    int w = vNeighbours[j];
+                    // Still a target if no witness was found
+                    if (targetGeneration[w] != currentWitnessGeneration) {
+                        continue;
+                    }
+                    numNeeded++;
+                    if (!isSimulation) {
+                        addOrShortenEdge(u, w, vLengths[i] + vLengths[j], v);
+                        numShortcuts++;
+                    }
+                }
+            }
+            if (isSimulation) {
+                return numNeeded;
+            }
+            // Edges left at v all go to vertices contracted later
+            for (int i = 0; i < vDegree; i++) {
+                int u = vNeighbours[i];
+                addUpwardEdge(v, u, vLengths[i], neighbourMiddles[v][i]);
+                removeEdge(u, v);
+                numContractedNeighbours[u]++;
+            }
+            degree[v] = 0;
+            isContracted[v] = true;
+            return numNeeded;
+        }
+
+        // Lengths of the edges between the neighbours of v into localLengths, infinite where there is none
+        private void fillLocalLengths(int v) {
+            int vDegree = degree[v];
+            currentLocalGeneration++;
+            for (int i = 0; i < vDegree; i++) {
+                localGeneration[neighbours[v][i]] = currentLocalGeneration;
+                localIndex[neighbours[v][i]] = i;
+            }
+            if (localLengths.length < vDegree * vDegree) {
+                localLengths = new float[vDegree * vDegree];
+            }
+            Arrays.fill(localLengths, 0, vDegree * vDegree, Float.POSITIVE_INFINITY);
+            for (int i = 0; i < vDegree; i++) {
+                int u = neighbours[v][i];
+                for (int k = 0; k < degree[u]; k++) {
+                    int neighbour = neighbours[u][k];
+                    if (localGeneration[neighbour] == currentLocalGeneration) {
+                        localLengths[i * vDegree + localIndex[neighbour]] = neighbourLengths[u][k];
+                    }
+                }
+            }
+        }
+
+        // Path of one or two edges between the neighbours i and j of the vertex being contracted, no longer than bound
+        private boolean hasLocalWitness(int i, int j, int vDegree, float bound) {
+            int rowI = i * vDegree;
+            int rowJ = j * vDegree;
+            if (localLengths[rowI + j] <= bound) {
+                return true;
+            }
+            for (int k = 0; k < vDegree; k++) {
+                if (localLengths[rowI + k] + localLengths[rowJ + k] <= bound) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Unstamps the targets with a path of two edges from source through a vertex other than avoided within their bounds,
+        // returns the number of targets left
+        private int twoEdgeWitnesses(int source, int avoided, int numTargets) {
+            currentTwoEdgeGeneration++;
+            for (int i = 0; i < degree[source]; i++) {
+                int neighbour = neighbours[source][i];
+                if (neighbour != avoided) {
+                    twoEdgeGeneration[neighbour] = currentTwoEdgeGeneration;
+                    twoEdgeDistance[neighbour] = neighbourLengths[source][i];
+                }
+            }
+            int[] avoidedNeighbours = neighbours[avoided];
+            for (int j = 0; j < degree[avoided]; j++) {
+                int target = avoidedNeighbours[j];
+                if (targetGeneration[target] != currentWitnessGeneration) {
+                    continue;
+                }
+                for (int i = 0; i < degree[target]; i++) {
+                    int middle = neighbours[target][i];
+                    if (twoEdgeGeneration[middle] == currentTwoEdgeGeneration
+                            && twoEdgeDistance[middle] + neighbourLengths[target][i] <= targetBound[target]) {
+                        targetGeneration[target] = 0;
+                        numTargets--;
+                        break;
+                    }
+                }
+            }
+            return numTargets;
+        }
+
+        // Dijkstra from source avoiding avoided and contracted vertices, unstamping targets reached within their bounds
+        private void witnessSearch(int source, int avoided, float maxDistance, int numTargets) {
+            witnessOpenSet.clear();
+            witnessGeneration[source] = currentWitnessGeneration;
+            witnessDistance[source] = 0;
+            witnessOpenSet.insert(source, 0);
+            int numSettled = 0;
+            while (numTargets > 0 && !witnessOpenSet.isEmpty() && numSettled < MAX_WITNESS_SETTLED) {
+                int current = witnessOpenSet.popMin();
+                float distance = witnessDistance[current];
+                if (distance > maxDistance) {
+                    break;
+                }
+                numSettled++;
+                for (int i = 0; i < degree[current]; i++) {
+                    int neighbour = neighbours[current][i];
+                    if (neighbour == avoided) {
+                        continue;
+                    }
+                    float neighbourDistance = distance + neighbourLengths[current][i];
+                    if (witnessGeneration[neighbour] == currentWitnessGeneration && neighbourDistance >= witnessDistance[neighbour]) {
+                        continue;
+                    }
+                    witnessGeneration[neighbour] = currentWitnessGeneration;
+                    witnessDistance[neighbour] = neighbourDistance;
+                    witnessOpenSet.insertOrDecreaseKey(neighbour, neighbourDistance);
+                    if (targetGeneration[neighbour] == currentWitnessGeneration && neighbourDistance <= targetBound[neighbour]) {
+                        targetGeneration[neighbour] = 0;
+                        numTargets--;
+                    }
+                }
+            }
+        }
+
+        private void addOrShortenEdge(int u, int w, float length, int middle) {
+            if (!shortenEdge(u, w, length, middle)) {
+                appendEdge(u, w, length, middle);
+                appendEdge(w, u, length, middle);
+            } else {
+                shortenEdge(w, u, length, middle);
+            }
+        }
+
+        // False if there is no edge from u to w
+        private boolean shortenEdge(int u, int w, float length, int middle) {
+            for (int i = 0; i < degree[u]; i++) {
+                if (neighbours[u][i] == w) {
+                    if (length < neighbourLengths[u][i]) {
+                        neighbourLengths[u][i] = length;
+                        neighbourMiddles[u][i] = middle;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void appendEdge(int u, int w, float length, int middle) {
+            if (degree[u] == neighbours[u].length) {
+                int capacity = Math.max(4, 2 * degree[u]);
+                neighbours[u] = Arrays.copyOf(neighbours[u], capacity);
+                neighbourLengths[u] = Arrays.copyOf(neighbourLengths[u], capacity);
+                neighbourMiddles[u] = Arrays.copyOf(neighbourMiddles[u], capacity);
+            }
+            neighbours[u][degree[u]] = w;
+            neighbourLengths[u][degree[u]] = length;
+            neighbourMiddles[u][degree[u]] = middle;
+            degree[u]++;
+        }
+
+        // Swaps the last edge of u into the place of the one to w
+        private void removeEdge(int u, int w) {
+            for (int i = 0; i < degree[u]; i++) {
+                if (neighbours[u][i] == w) {
+                    int last = --degree[u];
+                    neighbours[u][i] = neighbours[u][last];
+                    neighbourLengths[u][i] = neighbourLengths[u][last];
+                    neighbourMiddles[u][i] = neighbourMiddles[u][last];
+                    return;
+                }
+            }
+        }
+
+        private void addUpwardEdge(int source, int target, float length, int middle) {
+            if (numUpwardEdges == upwardSources.length) {
+                int capacity = 2 * numUpwardEdges;
+                upwardSources = Arrays.copyOf(upwardSources, capacity);
+                upwardTargets = Arrays.copyOf(upwardTargets, capacity);
+                upwardLengths = Arrays.copyOf(upwardLengths, capacity);
+                upwardMiddles = Arrays.copyOf(upwardMiddles, capacity);
+            }
+            upwardSources[numUpwardEdges] = source;
+            upwardTargets[numUpwardEdges] = target;
+            upwardLengths[numUpwardEdges] = length;
+            upwardMiddles[numUpwardEdges] = middle;
+            numUpwardEdges++;
+        }
+    }
+}
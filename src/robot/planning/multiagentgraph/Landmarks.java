@@ -0,0 +1,130 @@
+package robot.planning.multiagentgraph;
+
+import robot.planning.IndexedMinHeap;
+import robot.planning.Roadmap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Shortest path distances from a few landmark vertices to every vertex, for the ALT (A*, landmarks, triangle inequality) heuristic
+class Landmarks {
+    final int[] landmarks;
+    // Vertices the distances cover, vertices added later have no bound
+    final int numVertices;
+    // distances[v * landmarks.length + l] is the distance from landmark l to v, vertex major so that a bound reads
+    // two contiguous runs, infinite if v can not be reached from l
+    private final float[] distances;
+
+    private Landmarks(int[] landmarks, int numVertices, float[] distances) {
+        this.landmarks = landmarks;
+        this.numVertices = numVertices;
+        this.distances = distances;
+    }
+
+    // Farthest selection, starting over in a component no landmark reaches once those reached are all landmarks
+    static Landmarks generate(Roadmap roadmap, BitSet verticesInsideObstacles, int numLandmarks) {
+        int n = roadmap.numVertices;
+        IndexedMinHeap openSet = new IndexedMinHeap(n);
+        float[] distanceFrom = new float[n];
+        float[] distanceToLandmarks = new float[n];
+        Arrays.fill(distanceToLandmarks, Float.POSITIVE_INFINITY);
+
+        int[] landmarks = new int[numLandmarks];
+        float[][] distancesFromLandmarks = new float[numLandmarks][];
+        int numGenerated = 0;
+        while (numGenerated < numLandmarks) {
+            int next = farthest(distanceToLandmarks);
+            if (next == -1) {
+                int seed = uncovered(distanceToLandmarks, verticesInsideObstacles);
+                if (seed == -1) {
+                    break;
+                }
+                shortestDistances(roadmap, verticesInsideObstacles, seed, openSet, distanceFrom);
+                next = farthest(distanceFrom);
+                if (next == -1) {
+                    next = seed;
+                }
+            }
+            float[] distanceFromNext = new float[n];
+            shortestDistances(roadmap, verticesInsideObstacles, next, openSet, distanceFromNext);
+            for (int v = 0; v < n; v++) {
+                distanceToLandmarks[v] = Math.min(distanceToLandmarks[v], distanceFromNext[v]);
+            }
+            landmarks[numGenerated] = next;
+            distancesFromLandmarks[numGenerated] = distanceFromNext;
+            numGenerated++;
+        }
+
+        int k = numGenerated;
+        float[] distances = new float[n * k];
+        for (int l = 0; l < k; l++) {
+            for (int v = 0; v < n; v++) {
+                distances[v * k + l] = distancesFromLandmarks[l][v];
+            }
+        }
+        return new Landmarks(Arrays.copyOf(landmarks, k), n, distances);
+    }
+
+    // Dijkstra over the vertices searches may use
+    private static void shortestDistances(Roadmap roadmap, BitSet verticesInsideObstacles, int source, IndexedMinHeap openSet, float[] distance) {
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        openSet.clear();
+        distance[source] = 0;
+        openSet.insert(source, 0);
+        while (!openSet.isEmpty()) {
+            int current = openSet.popMin();
+            for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                int neighbour = roadmap.targets[k];
+                if (neighbour == Roadmap.REMOVED || verticesInsideObstacles.get(neighbour)) {
+                    continue;
+                }
+                float newDistance = distance[current] + roadmap.edgeLengths[k];
+                if (newDistance < distance[neighbour]) {
+                    distance[neighbour] = newDistance;
+                    openSet.insertOrDecreaseKey(neighbour, newDistance);
+                }
+            }
+        }
+    }
+
+    // Reachable vertex with the largest distance, -1 if every reachable vertex is at distance 0
+    private static int farthest(float[] distance) {
+        int farthest = -1;
+        float largest = 0;
+        for (int v = 0; v < distance.length; v++) {
+            if (distance[v] != Float.POSITIVE_INFINITY && distance[v] > largest) {
+                largest = distance[v];
+                farthest = v;
+            }
+        }
+        return farthest;
+    }
+
+    // Vertex outside obstacles no landmark reaches, -1 if there is none
+    private static int uncovered(float[] distanceToLandmarks, BitSet verticesInsideObstacles) {
+        for (int v = 0; v < distanceToLandmarks.length; v++) {
+            if (distanceToLandmarks[v] == Float.POSITIVE_INFINITY && !verticesInsideObstacles.get(v)) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    // Lower bound on the distance between v and t, 0 if either is not covered
+    // Landmarks that reach only one of them say nothing, as then no path connects them at all
+    float lowerBound(int v, int t) {
+        if (v >= numVertices || t >= numVertices) {
+            return 0;
+        }
+        int k = landmarks.length;
+        float bound = 0;
+        for (int l = 0; l < k; l++) {
+            float toV = distances[v * k + l];
+            float toT = distances[t * k + l];
+            if (toV != Float.POSITIVE_INFINITY && toT != Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, Math.abs(toT - toV));
+            }
+        }
+        return bound;
+    }
+}
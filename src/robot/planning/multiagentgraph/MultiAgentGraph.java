@@ -1,230 +1,802 @@
 package robot.planning.multiagentgraph;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 import robot.input.SphericalAgentDescription;
+import robot.planning.IndexedMinHeap;
+import robot.planning.NeighbourGrid;
+import robot.planning.Roadmap;
 import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeBatch;
+import robot.sensing.EdgeValidityCache;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class MultiAgentGraph {
     public static boolean DRAW_VERTICES = true;
     public static boolean DRAW_EDGES = false;
     public static boolean DRAW_ENDS = true;
     public static float END_POINT_SIZE = 2f;
+    public static boolean PARALLEL_ADJACENCIES = true;
+    // Vertices are split into partitions of this many for the parallel build
+    public static int ADJACENCY_PARTITION_SIZE = 1024;
+    public static ForkJoinPool ADJACENCY_POOL = ForkJoinPool.commonPool();
+    // Lazy PRM, edges are only checked once a search finds a path over them or reaches a vertex over them
+    public static boolean LAZY_EDGES = false;
+    // Searches print their name and the number of vertices they explored, off for batches of searches, as System.out is
+    // synchronized and would serialize parallel searches, numVerticesExplored reports the same without printing
+    public static boolean LOG_SEARCHES = true;
+    // Bidirectional A* runs as A* until its smallest key exceeds the heuristic distance between start and finish by this fraction
+    public static float BIDIRECTIONAL_SLACK = 0.1f;
 
-    final PApplet parent;
-    final List<Vertex> starts = new ArrayList<>();
-    final List<Vertex> finishes = new ArrayList<>();
-    final List<Vertex> vertices = new ArrayList<>();
+    final Canvas parent;
+    // Agent i starts at vertex 2i and finishes at vertex 2i + 1, sampled vertices follow
+    final int numAgents;
+    // Vertex v is at (positions[3v], positions[3v + 1], positions[3v + 2]), the roadmap shares the array
+    float[] positions = new float[0];
+    // Vertices that intersect some obstacle, kept so that indices stay put but never entered by searches
+    final BitSet verticesInsideObstacles = new BitSet();
+    // Edges between vertices, indexed like vertices
+    Roadmap roadmap = Roadmap.empty();
+    // Search state of each thread, reused across its searches
+    final ThreadLocal<SearchScratch> scratches = ThreadLocal.withInitial(SearchScratch::new);
+    // State of the backward half of bidirectional searches
+    final ThreadLocal<SearchScratch> backwardScratches = ThreadLocal.withInitial(SearchScratch::new);
+    // Search drawn by draw, the last one made on any thread
+    volatile SearchScratch lastSearch;
+    // Indices into roadmap.targets of edges added without a check, see LAZY_EDGES
+    BitSet uncheckedEdges = new BitSet();
+    // Unchecked edges are checked in the configuration space and cache they were generated with
+    ConfigurationSpace lazyConfigurationSpace;
+    EdgeValidityCache lazyEdgeValidityCache;
+    // Reverse shortest path trees by finish position, shared by agents with the same finish, cleared when the roadmap changes
+    final Map<Vec3, GoalTree> goalTrees = new ConcurrentHashMap<>();
+    // Number of agents with each finish position, goal trees are only built for positions shared by several
+    final Map<Vec3, Integer> numAgentsPerGoal = new HashMap<>();
+    // Landmarks for the ALT heuristic of A*, null until generateLandmarks, generated again along with the adjacencies
+    volatile Landmarks landmarks;
+    int numLandmarks = 0;
+    // Built by the first contraction hierarchy search after the roadmap changes, null until then
+    volatile ContractionHierarchy contractionHierarchy;
 
-    public MultiAgentGraph(PApplet parent, Vec3 startPosition, Vec3 finishPosition) {
+    public MultiAgentGraph(Canvas parent, Vec3 startPosition, Vec3 finishPosition) {
         this.parent = parent;
-        Vertex start = Vertex.of(parent, startPosition, true);
-        this.starts.add(start);
-        this.vertices.add(start);
-
-        Vertex finish = Vertex.of(parent, finishPosition, true);
-        this.finishes.add(finish);
-        this.vertices.add(finish);
+        this.numAgents = 1;
+        addVertices(Arrays.asList(startPosition, finishPosition));
+        numAgentsPerGoal.put(finishPosition, 1);
     }
 
-    public MultiAgentGraph(PApplet parent, List<SphericalAgentDescription> sphericalAgentDescriptions) {
+    public MultiAgentGraph(Canvas parent, List<SphericalAgentDescription> sphericalAgentDescriptions) {
         this.parent = parent;
         // At least one spherical agent description is required
         assert (sphericalAgentDescriptions.size() > 0);
+        this.numAgents = sphericalAgentDescriptions.size();
+        List<Vec3> ends = new ArrayList<>(2 * numAgents);
         for (SphericalAgentDescription description : sphericalAgentDescriptions) {
-            Vertex start = Vertex.of(parent, description.startPosition, true);
-            this.starts.add(start);
-            this.vertices.add(start);
+            ends.add(description.startPosition);
+            ends.add(description.finishPosition);
+            numAgentsPerGoal.merge(description.finishPosition, 1, Integer::sum);
+        }
+        addVertices(ends);
+    }
 
-            Vertex finish = Vertex.of(parent, description.finishPosition, true);
-            this.finishes.add(finish);
-            this.vertices.add(finish);
+    private void addVertices(List<Vec3> newPositions) {
+        int n = numVertices();
+        positions = Arrays.copyOf(positions, 3 * (n + newPositions.size()));
+        for (int i = 0; i < newPositions.size(); i++) {
+            Vec3 position = newPositions.get(i);
+            positions[3 * (n + i)] = position.x;
+            positions[3 * (n + i) + 1] = position.y;
+            positions[3 * (n + i) + 2] = position.z;
         }
     }
 
+    int numVertices() {
+        return positions.length / 3;
+    }
+
+    static int start(int agentIndex) {
+        return 2 * agentIndex;
+    }
+
+    static int finish(int agentIndex) {
+        return 2 * agentIndex + 1;
+    }
+
+    boolean isOutsideObstacle(int v) {
+        return !verticesInsideObstacles.get(v);
+    }
+
+    // A new vector each call, for results and drawing only
+    Vec3 position(int v) {
+        return Vec3.of(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]);
+    }
+
+    // Same comparison as Vec3.equals
+    boolean isAt(int v, Vec3 position) {
+        return Float.compare(positions[3 * v], position.x) == 0
+                && Float.compare(positions[3 * v + 1], position.y) == 0
+                && Float.compare(positions[3 * v + 2], position.z) == 0;
+    }
+
     public void generateVertices(List<Vec3> newVertexPositions, ConfigurationSpace configurationSpace) {
         int numVerticesCulled = 0;
-        for (Vec3 position : newVertexPositions) {
-            if (configurationSpace.doesVertexIntersectSomeObstacle(position)) {
+        int n = numVertices();
+        for (int i = 0; i < newVertexPositions.size(); i++) {
+            if (configurationSpace.doesVertexIntersectSomeObstacle(newVertexPositions.get(i))) {
                 numVerticesCulled++;
-                vertices.add(Vertex.of(
-                        parent,
-                        position,
-                        false));
-            } else {
-                vertices.add(Vertex.of(
-                        parent,
-                        position,
-                        true));
+                verticesInsideObstacles.set(n + i);
             }
         }
-        PApplet.println("# vertices before culling: " + vertices.size());
-        PApplet.println("# vertices culled: " + numVerticesCulled);
-        PApplet.println("# vertices after culling: " + (vertices.size() - numVerticesCulled));
+        addVertices(newVertexPositions);
+        System.out.println("# vertices before culling: " + numVertices());
+        System.out.println("# vertices culled: " + numVerticesCulled);
+        System.out.println("# vertices after culling: " + (numVertices() - numVerticesCulled));
+    }
+
+    // Distances from numLandmarks landmarks to every vertex, which A*, weighted A* and bidirectional A* then use
+    // to bound the distance to finish around obstacles, where the straight line distance is far too low
+    public void generateLandmarks(int numLandmarks) {
+        this.numLandmarks = numLandmarks;
+        landmarks = Landmarks.generate(roadmap, verticesInsideObstacles, numLandmarks);
+        System.out.println("# landmarks generated: " + landmarks.landmarks.length);
+    }
+
+    // Preprocessing for contractionHierarchySearch, which otherwise builds the hierarchy on its first query
+    // Any change to the roadmap drops the hierarchy, the next query then builds it again from scratch
+    public void generateContractionHierarchy() {
+        // Shortcuts must not go over edges that may turn out invalid
+        checkUncheckedEdges();
+        contractionHierarchy = ContractionHierarchy.build(roadmap, verticesInsideObstacles);
+        System.out.println("# contraction hierarchy shortcuts: " + contractionHierarchy.numShortcuts + ", # core vertices: " + contractionHierarchy.numCoreVertices);
+    }
+
+    private synchronized ContractionHierarchy currentContractionHierarchy() {
+        if (contractionHierarchy == null) {
+            generateContractionHierarchy();
+        }
+        return contractionHierarchy;
     }
 
     public void generateAdjacencies(float maxEdgeLen, ConfigurationSpace configurationSpace) {
+        generateAdjacencies(maxEdgeLen, configurationSpace, null);
+    }
+
+    // Edges are looked up in edgeValidityCache (may be null) and left unchecked with LAZY_EDGES, the same in parallel
+    public void generateAdjacencies(float maxEdgeLen, ConfigurationSpace configurationSpace, EdgeValidityCache edgeValidityCache) {
+        long stamp = configurationSpace.stamp();
+        NeighbourGrid neighbourGrid = new NeighbourGrid(positions, maxEdgeLen);
+        int numVertices = numVertices();
+
+        List<EdgePartition> partitions;
+        if (PARALLEL_ADJACENCIES) {
+            int partitionSize = Math.max(1, ADJACENCY_PARTITION_SIZE);
+            int numPartitions = (numVertices + partitionSize - 1) / partitionSize;
+            partitions = ADJACENCY_POOL.submit(() -> IntStream.range(0, numPartitions).parallel()
+                    .mapToObj(p -> collectEdges(neighbourGrid, p * partitionSize, Math.min(numVertices, (p + 1) * partitionSize),
+                            configurationSpace, edgeValidityCache, stamp))
+                    .collect(Collectors.toList())
+            ).join();
+        } else {
+            partitions = Collections.singletonList(
+                    collectEdges(neighbourGrid, 0, numVertices, configurationSpace, edgeValidityCache, stamp));
+        }
+
+        // Partitions are in order of vertices, so this visits edges (i, j) in the same order as the serial build
         int numEdges = 0;
         int numEdgesCulled = 0;
-        for (int i = 0; i < vertices.size() - 1; ++i) {
-            for (int j = i + 1; j < vertices.size(); j++) {
-                Vertex v1 = vertices.get(i);
-                Vertex v2 = vertices.get(j);
-                if (v1.position.minus(v2.position).norm() <= maxEdgeLen) {
-                    // Check for intersection with spherical obstacle
-                    if (!v1.isOutsideObstacle || !v2.isOutsideObstacle || configurationSpace.doesEdgeIntersectSomeObstacle(v1.position, v2.position)) {
-                        numEdgesCulled++;
-                    } else {
-                        v1.addNeighbour(v2, Vec3.of(1));
-                        v2.addNeighbour(v1, Vec3.of(1));
-                        numEdges++;
+        int numEdgesFromCache = 0;
+        int numEdgesUnchecked = 0;
+        int[] edges = new int[2 * 1024];
+        BitSet newUncheckedEdges = new BitSet();
+        for (EdgePartition partition : partitions) {
+            numEdgesCulled += partition.numEdgesCulled;
+            numEdgesFromCache += partition.numEdgesFromCache;
+            for (int k = 0; k < partition.numCandidates; k++) {
+                int i = partition.candidates[3 * k];
+                int j = partition.candidates[3 * k + 1];
+                int result = partition.candidates[3 * k + 2];
+                boolean isValid = result == CACHED_VALID || result == CHECKED_VALID || result == UNCHECKED;
+                if ((result == CHECKED_VALID || result == CHECKED_INVALID) && edgeValidityCache != null) {
+                    edgeValidityCache.put(i, j, stamp, isValid);
+                }
+                if (isValid) {
+                    if (2 * numEdges == edges.length) {
+                        edges = Arrays.copyOf(edges, 2 * edges.length);
+                    }
+                    edges[2 * numEdges] = i;
+                    edges[2 * numEdges + 1] = j;
+                    if (result == UNCHECKED) {
+                        newUncheckedEdges.set(numEdges);
+                        numEdgesUnchecked++;
+                    }
+                    numEdges++;
+                } else {
+                    numEdgesCulled++;
+                }
+            }
+        }
+        Roadmap newRoadmap = roadmap.withEdges(positions, edges, numEdges);
+        uncheckedEdges = uncheckedEdgesOf(newRoadmap, edges, numEdges, newUncheckedEdges);
+        roadmap = newRoadmap;
+        goalTrees.clear();
+        contractionHierarchy = null;
+        if (numLandmarks > 0) {
+            generateLandmarks(numLandmarks);
+        }
+        if (numEdgesUnchecked > 0) {
+            lazyConfigurationSpace = configurationSpace;
+            lazyEdgeValidityCache = edgeValidityCache;
+        }
+        System.out.println("# edges reused from cache: " + numEdgesFromCache);
+        System.out.println("# edges left unchecked: " + numEdgesUnchecked);
+        System.out.println("# edges culled: " + numEdgesCulled);
+        System.out.println("# edges generated: " + numEdges);
+    }
+
+    // Candidate edges of vertices [from, to) as (i, j, result) in order of i then j
+    private static class EdgePartition {
+        int[] candidates = new int[3 * 1024];
+        int numCandidates = 0;
+        int numEdgesCulled = 0;
+        int numEdgesFromCache = 0;
+
+        void add(int i, int j, int result) {
+            if (3 * numCandidates == candidates.length) {
+                candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+            }
+            candidates[3 * numCandidates] = i;
+            candidates[3 * numCandidates + 1] = j;
+            candidates[3 * numCandidates + 2] = result;
+            numCandidates++;
+        }
+    }
+
+    // Results of candidate edges, non negative results are indices into the batch of edges still to be checked
+    private static final int CACHED_VALID = -1;
+    private static final int CACHED_INVALID = -2;
+    private static final int CHECKED_VALID = -3;
+    private static final int CHECKED_INVALID = -4;
+    private static final int UNCHECKED = -5;
+
+    // Only reads shared state, so partitions can run at the same time
+    private EdgePartition collectEdges(NeighbourGrid neighbourGrid, int from, int to,
+                                       ConfigurationSpace configurationSpace, EdgeValidityCache edgeValidityCache, long stamp) {
+        EdgePartition partition = new EdgePartition();
+        NeighbourGrid.Neighbours neighbours = new NeighbourGrid.Neighbours();
+        EdgeBatch batch = new EdgeBatch();
+        for (int i = from; i < to && i < numVertices() - 1; ++i) {
+            // None of its edges would be kept
+            if (!isOutsideObstacle(i)) {
+                continue;
+            }
+            neighbourGrid.neighboursAfter(i, neighbours);
+            for (int k = 0; k < neighbours.size; k++) {
+                int j = neighbours.indices[k];
+                if (!isOutsideObstacle(j)) {
+                    partition.numEdgesCulled++;
+                    continue;
+                }
+                int cached = edgeValidityCache == null ? EdgeValidityCache.UNKNOWN : edgeValidityCache.get(i, j, stamp);
+                if (cached == EdgeValidityCache.UNKNOWN) {
+                    partition.add(i, j, LAZY_EDGES ? UNCHECKED : batch.add(positions, i, j));
+                } else {
+                    partition.numEdgesFromCache++;
+                    partition.add(i, j, cached == EdgeValidityCache.VALID ? CACHED_VALID : CACHED_INVALID);
+                }
+            }
+        }
+        // Check for intersection with spherical obstacle
+        BitSet invalid = batch.check(configurationSpace);
+        for (int k = 0; k < partition.numCandidates; k++) {
+            int result = partition.candidates[3 * k + 2];
+            if (result >= 0) {
+                partition.candidates[3 * k + 2] = invalid.get(result) ? CHECKED_INVALID : CHECKED_VALID;
+            }
+        }
+        return partition;
+    }
+
+    // Unchecked edges of newRoadmap, which is roadmap with edges appended as in Roadmap.withEdges,
+    // of which those in newUncheckedEdges are unchecked
+    private BitSet uncheckedEdgesOf(Roadmap newRoadmap, int[] edges, int numEdges, BitSet newUncheckedEdges) {
+        BitSet unchecked = new BitSet();
+        if (uncheckedEdges.isEmpty() && newUncheckedEdges.isEmpty()) {
+            return unchecked;
+        }
+        // Existing edges keep their position within their row, new edges follow them in order
+        int[] next = new int[newRoadmap.numVertices];
+        for (int v = 0; v < newRoadmap.numVertices; v++) {
+            next[v] = newRoadmap.offsets[v];
+            if (v < roadmap.numVertices) {
+                for (int k = roadmap.offsets[v]; k < roadmap.offsets[v + 1]; k++) {
+                    if (uncheckedEdges.get(k)) {
+                        unchecked.set(next[v] + k - roadmap.offsets[v]);
                     }
                 }
+                next[v] += roadmap.offsets[v + 1] - roadmap.offsets[v];
             }
         }
-        PApplet.println("# edges culled: " + numEdgesCulled);
-        PApplet.println("# edges generated: " + numEdges);
+        // All new edges unchecked, as with LAZY_EDGES and no cache, they fill the rest of every row
+        if (newUncheckedEdges.cardinality() == numEdges) {
+            for (int v = 0; v < newRoadmap.numVertices; v++) {
+                unchecked.set(next[v], newRoadmap.offsets[v + 1]);
+            }
+            return unchecked;
+        }
+        for (int k = 0; k < numEdges; k++) {
+            int u = next[edges[2 * k]]++;
+            int v = next[edges[2 * k + 1]]++;
+            if (newUncheckedEdges.get(k)) {
+                unchecked.set(u);
+                unchecked.set(v);
+            }
+        }
+        return unchecked;
     }
 
     public void clearAdjacenciesOnlyUseInBSHSpeedUp() {
-        for (Vertex vertex : vertices) {
-            vertex.neighbours.clear();
-            vertex.edgeColors.clear();
-            vertex.searchState.reset(finishes.get(0).position);
-        }
+        roadmap = Roadmap.empty();
+        uncheckedEdges = new BitSet();
+        goalTrees.clear();
+        contractionHierarchy = null;
+        lastSearch = null;
     }
 
     public void draw() {
         if (DRAW_VERTICES) {
-            for (Vertex vertex : vertices) {
-                vertex.draw();
+            SearchScratch lastSearch = this.lastSearch;
+            for (int v = 0; v < numVertices(); v++) {
+                drawVertex(v, lastSearch);
+                if (DRAW_EDGES) {
+                    drawEdges(v);
+                }
             }
         }
         if (DRAW_ENDS) {
             // Starts
             parent.fill(0, 0, 1);
             parent.noStroke();
-            for (Vertex start : starts) {
-                parent.pushMatrix();
-                parent.translate(start.position.x, start.position.y, start.position.z);
-                parent.box(END_POINT_SIZE);
-                parent.popMatrix();
+            for (int i = 0; i < numAgents; i++) {
+                drawEnd(start(i));
             }
             // Finishes
             parent.fill(0, 1, 0);
             parent.noStroke();
-            for (Vertex finish : finishes) {
-                parent.pushMatrix();
-                parent.translate(finish.position.x, finish.position.y, finish.position.z);
-                parent.box(END_POINT_SIZE);
-                parent.popMatrix();
+            for (int i = 0; i < numAgents; i++) {
+                drawEnd(finish(i));
+            }
+        }
+    }
+
+    // Coloured by the state of the last search
+    private void drawVertex(int v, SearchScratch lastSearch) {
+        float r = 1, g = 1, b = 1;
+        if (!isOutsideObstacle(v)) {
+            g = 0;
+        } else if (lastSearch != null) {
+            if (lastSearch.isClosed(v)) {
+                g = 0;
+                b = 0;
+            } else if (lastSearch.isReached(v)) {
+                r = 0;
+                b = 0;
+            }
+        }
+        parent.pushMatrix();
+        parent.fill(r, g, b);
+        parent.stroke(r, g, b);
+        parent.point(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]);
+        parent.popMatrix();
+    }
+
+    private void drawEnd(int v) {
+        parent.pushMatrix();
+        parent.translate(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]);
+        parent.box(END_POINT_SIZE);
+        parent.popMatrix();
+    }
+
+    private void drawEdges(int v) {
+        if (v >= roadmap.numVertices) {
+            return;
+        }
+        parent.stroke(1, 1, 1);
+        for (int k = roadmap.offsets[v]; k < roadmap.offsets[v + 1]; k++) {
+            int neighbour = roadmap.targets[k];
+            if (neighbour == Roadmap.REMOVED) {
+                continue;
+            }
+            parent.line(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2],
+                    positions[3 * neighbour], positions[3 * neighbour + 1], positions[3 * neighbour + 2]);
+        }
+    }
+
+    // Indices of the vertices from the start to finish following predecessors in scratch, null if finish was not reached
+    private int[] pathIndicesTo(SearchScratch scratch, int finish) {
+        if (finish == -1 || scratch.predecessor(finish) == -1) {
+            return null;
+        }
+        int length = 1;
+        for (int v = finish; scratch.predecessor(v) != v; v = scratch.predecessor(v)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int v = finish;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = v;
+            v = scratch.predecessor(v);
+        }
+        return path;
+    }
+
+    private List<Vec3> positionsOf(int[] path) {
+        Vec3[] positions = new Vec3[path.length];
+        for (int i = 0; i < path.length; i++) {
+            positions[i] = position(path[i]);
+        }
+        return Arrays.asList(positions);
+    }
+
+    // Searches of agents can run on several threads at once as long as they only read the graph,
+    // which is the case unless lazy edges are left to be checked, see LAZY_EDGES
+    public boolean canSearchConcurrently() {
+        return uncheckedEdges.isEmpty();
+    }
+
+    // Runs search until its path has no unchecked edges, removing the invalid ones, the path is only the start if there is none
+    private List<Vec3> searchCheckingEdges(int agentIndex, Function<SearchScratch, int[]> search) {
+        SearchScratch scratch = scratches.get();
+        while (true) {
+            scratch.reset(positions, finish(agentIndex), landmarks);
+            int[] path = search.apply(scratch);
+            lastSearch = scratch;
+            if (path == null) {
+                return Collections.singletonList(position(start(agentIndex)));
+            }
+            if (uncheckedEdges.isEmpty() || !removeInvalidEdgesOnPath(path)) {
+                return positionsOf(path);
+            }
+        }
+    }
+
+    // Indices of the path to the vertex at the finish the search reached, null if it could not reach one
+    private int[] result(SearchScratch scratch, int numVerticesExplored) {
+        scratch.numVerticesExplored = numVerticesExplored;
+        if (scratch.finish == -1) {
+            if (LOG_SEARCHES) {
+                System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+            }
+            return null;
+        }
+        if (LOG_SEARCHES) {
+            System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+        }
+        return pathIndicesTo(scratch, scratch.finish);
+    }
+
+    // Number of vertices expanded by the last search on this thread, both directions for bidirectional searches
+    public int numVerticesExplored() {
+        return scratches.get().numVerticesExplored;
+    }
+
+    // Checks the unchecked edges between consecutive vertices of path (may be null), returns whether any was invalid
+    private boolean removeInvalidEdgesOnPath(int[] path) {
+        if (path == null) {
+            return false;
+        }
+        long stamp = lazyConfigurationSpace.stamp();
+        EdgeBatch batch = new EdgeBatch();
+        int[] batchEnds = new int[2 * path.length];
+        int numEdgesFromCache = 0;
+        int numEdgesRemoved = 0;
+        for (int k = 0; k + 1 < path.length; k++) {
+            int u = path[k];
+            int v = path[k + 1];
+            if (!uncheckedEdges.get(edgeIndex(u, v))) {
+                continue;
+            }
+            int cached = lazyEdgeValidityCache == null ? EdgeValidityCache.UNKNOWN : lazyEdgeValidityCache.get(u, v, stamp);
+            if (cached == EdgeValidityCache.UNKNOWN) {
+                // Same orientation as the edges checked by generateAdjacencies
+                int e = batch.add(positions, Math.min(u, v), Math.max(u, v));
+                batchEnds[2 * e] = Math.min(u, v);
+                batchEnds[2 * e + 1] = Math.max(u, v);
+                continue;
+            }
+            numEdgesFromCache++;
+            if (cached == EdgeValidityCache.INVALID) {
+                numEdgesRemoved++;
+            }
+            setChecked(u, v, cached == EdgeValidityCache.VALID);
+        }
+        BitSet invalid = batch.check(lazyConfigurationSpace);
+        for (int e = 0; e < batch.size(); e++) {
+            int i = batchEnds[2 * e];
+            int j = batchEnds[2 * e + 1];
+            boolean isValid = !invalid.get(e);
+            if (lazyEdgeValidityCache != null) {
+                lazyEdgeValidityCache.put(i, j, stamp, isValid);
+            }
+            if (!isValid) {
+                numEdgesRemoved++;
             }
+            setChecked(i, j, isValid);
         }
+        if (LOG_SEARCHES) {
+            System.out.println("# path edges checked: " + batch.size() + ", from cache: " + numEdgesFromCache + ", removed: " + numEdgesRemoved);
+        }
+        return numEdgesRemoved > 0;
     }
 
-    private void resetSearchState(Vec3 finishPosition) {
-        PApplet.println("Resetting search states of vertices");
-        for (Vertex v : vertices) {
-            if (v.isOutsideObstacle) {
-                v.searchState.reset(finishPosition);
+    // Checks the unchecked edge scratch reached v over, reaching v again from its best closed neighbour if it is invalid
+    private boolean checkEdgeToPredecessor(SearchScratch scratch, int v, float heuristicWeight) {
+        int predecessor = scratch.predecessor(v);
+        if (predecessor == v || checkEdge(predecessor, v)) {
+            return true;
+        }
+        int best = -1;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int k = roadmap.offsets[v]; k < roadmap.offsets[v + 1]; k++) {
+            int neighbour = roadmap.targets[k];
+            if (neighbour == Roadmap.REMOVED || !scratch.isClosed(neighbour)) {
+                continue;
             }
+            float distance = scratch.distanceFromStart(neighbour) + roadmap.edgeLengths[k];
+            if (distance < bestDistance) {
+                best = neighbour;
+                bestDistance = distance;
+            }
+        }
+        if (best == -1) {
+            scratch.unreach(v);
+        } else {
+            scratch.reach(v, best, bestDistance);
+            scratch.openSet.insert(v, bestDistance + heuristicWeight * scratch.heuristicDistanceToFinish(v));
         }
+        return false;
     }
 
-    private void addToFringe(final Stack<Vertex> fringe, final Vertex current, final Vertex next) {
-        fringe.add(next);
-        next.searchState.addToFringeFrom(current);
+    // Checks the edge between u and v if it was left unchecked, removing it if invalid, returns whether it is valid
+    private boolean checkEdge(int u, int v) {
+        if (!uncheckedEdges.get(edgeIndex(u, v))) {
+            return true;
+        }
+        long stamp = lazyConfigurationSpace.stamp();
+        int cached = lazyEdgeValidityCache == null ? EdgeValidityCache.UNKNOWN : lazyEdgeValidityCache.get(u, v, stamp);
+        boolean isValid;
+        if (cached == EdgeValidityCache.UNKNOWN) {
+            // Same orientation as the edges checked by generateAdjacencies
+            isValid = !lazyConfigurationSpace.doesEdgeIntersectSomeObstacle(position(Math.min(u, v)), position(Math.max(u, v)));
+            if (lazyEdgeValidityCache != null) {
+                lazyEdgeValidityCache.put(u, v, stamp, isValid);
+            }
+        } else {
+            isValid = cached == EdgeValidityCache.VALID;
+        }
+        setChecked(u, v, isValid);
+        return isValid;
+    }
+
+    // Checks all edges left unchecked in one batch, removing the invalid ones, see LAZY_EDGES
+    private void checkUncheckedEdges() {
+        if (uncheckedEdges.isEmpty()) {
+            return;
+        }
+        long stamp = lazyConfigurationSpace.stamp();
+        EdgeBatch batch = new EdgeBatch();
+        int[] batchEnds = new int[2 * 1024];
+        int numEdgesFromCache = 0;
+        int numEdgesRemoved = 0;
+        for (int u = 0; u < roadmap.numVertices; u++) {
+            for (int k = uncheckedEdges.nextSetBit(roadmap.offsets[u]); k != -1 && k < roadmap.offsets[u + 1]; k = uncheckedEdges.nextSetBit(k + 1)) {
+                int v = roadmap.targets[k];
+                // Each edge once, from its lower end
+                if (v < u) {
+                    continue;
+                }
+                int cached = lazyEdgeValidityCache == null ? EdgeValidityCache.UNKNOWN : lazyEdgeValidityCache.get(u, v, stamp);
+                if (cached == EdgeValidityCache.UNKNOWN) {
+                    int e = batch.add(positions, u, v);
+                    if (2 * e + 1 >= batchEnds.length) {
+                        batchEnds = Arrays.copyOf(batchEnds, 2 * batchEnds.length);
+                    }
+                    batchEnds[2 * e] = u;
+                    batchEnds[2 * e + 1] = v;
+                    continue;
+                }
+                numEdgesFromCache++;
+                if (cached == EdgeValidityCache.INVALID) {
+                    numEdgesRemoved++;
+                    removeEdge(u, v);
+                }
+            }
+        }
+        BitSet invalid = batch.check(lazyConfigurationSpace);
+        for (int e = 0; e < batch.size(); e++) {
+            int u = batchEnds[2 * e];
+            int v = batchEnds[2 * e + 1];
+            if (lazyEdgeValidityCache != null) {
+                lazyEdgeValidityCache.put(u, v, stamp, !invalid.get(e));
+            }
+            if (invalid.get(e)) {
+                numEdgesRemoved++;
+                removeEdge(u, v);
+            }
+        }
+        uncheckedEdges.clear();
+        System.out.println("# unchecked edges checked: " + batch.size() + ", from cache: " + numEdgesFromCache + ", removed: " + numEdgesRemoved);
+    }
+
+    // Index into roadmap.targets of the first edge from u to v
+    private int edgeIndex(int u, int v) {
+        for (int k = roadmap.offsets[u]; k < roadmap.offsets[u + 1]; k++) {
+            if (roadmap.targets[k] == v) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private void setChecked(int u, int v, boolean isValid) {
+        uncheckedEdges.clear(edgeIndex(u, v));
+        uncheckedEdges.clear(edgeIndex(v, u));
+        if (!isValid) {
+            removeEdge(u, v);
+        }
+    }
+
+    private void removeEdge(int u, int v) {
+        roadmap.removeEdge(u, v);
+        // Shortest paths that do not use the edge stay shortest without it
+        goalTrees.values().removeIf(tree -> tree.uses(u, v));
+        contractionHierarchy = null;
     }
 
     public List<Vec3> dfs(int agentIndex) {
-        PApplet.println("DFS");
+        if (LOG_SEARCHES) {
+            System.out.println("DFS");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> dfs(scratch, agentIndex));
+    }
 
-        resetSearchState(finishes.get(agentIndex).position);
-        final Stack<Vertex> fringe = new Stack<>();
+    private int[] dfs(SearchScratch scratch, int agentIndex) {
+        final int[] stack = scratch.fringe;
+        int size = 0;
         int numVerticesExplored = 0;
 
         // Add start to fringe
-
-        addToFringe(fringe, starts.get(agentIndex), starts.get(agentIndex));
-        while (fringe.size() > 0) {
+        int start = start(agentIndex);
+        stack[size++] = start;
+        scratch.reach(start, start, 0);
+        while (size > 0) {
             // Pop one vertex
-            Vertex current = fringe.pop();
+            int current = stack[--size];
             numVerticesExplored++;
             // Check if finish
-            if (current.isFinishVertex()) {
-                PApplet.println("Reached finish, # vertices explored: " + numVerticesExplored);
-                return finishes.get(agentIndex).searchState.pathFromStart;
+            if (scratch.isAtFinish(current)) {
+                scratch.finish = current;
+                break;
             }
             // Mark this vertex as explored
-            current.searchState.setExplored();
+            scratch.close(current);
             // Update fringe
-            for (Vertex neighbour : current.neighbours) {
-                if (neighbour.isOutsideObstacle && !neighbour.searchState.isExplored) {
-                    addToFringe(fringe, current, neighbour);
+            if (current < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour != Roadmap.REMOVED && isOutsideObstacle(neighbour) && !scratch.isReached(neighbour)) {
+                        stack[size++] = neighbour;
+                        scratch.reach(neighbour, current, 0);
+                    }
                 }
             }
         }
-
-        PApplet.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
-        return Collections.singletonList(starts.get(agentIndex).position);
+        return result(scratch, numVerticesExplored);
     }
 
     public List<Vec3> dfs() {
         return dfs(0);
     }
 
-    private void addToFringe(final Queue<Vertex> fringe, final Vertex current, final Vertex next) {
-        next.searchState.distanceFromStart = current.searchState.distanceFromStart + next.position.minus(current.position).norm();
-        fringe.add(next);
-        next.searchState.addToFringeFrom(current);
+    public List<Vec3> bfs(int agentIndex) {
+        if (LOG_SEARCHES) {
+            System.out.println("BFS");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> bfs(scratch, agentIndex));
     }
 
-    private List<Vec3> search(final Queue<Vertex> fringe, int agentIndex) {
+    private int[] bfs(SearchScratch scratch, int agentIndex) {
+        final int[] queue = scratch.fringe;
+        int head = 0;
+        int tail = 0;
         int numVerticesExplored = 0;
 
         // Add start to fringe
-        addToFringe(fringe, starts.get(agentIndex), starts.get(agentIndex));
-        while (fringe.size() > 0) {
+        int start = start(agentIndex);
+        queue[tail++] = start;
+        scratch.reach(start, start, 0);
+        while (head < tail) {
             // Pop one vertex
-            Vertex current = fringe.remove();
+            int current = queue[head++];
             numVerticesExplored++;
             // Check if finish
-            if (current.isFinishVertex()) {
-                PApplet.println("Reached finish, # vertices explored: " + numVerticesExplored);
-                return finishes.get(agentIndex).searchState.pathFromStart;
+            if (scratch.isAtFinish(current)) {
+                scratch.finish = current;
+                break;
             }
             // Mark this vertex as explored
-            current.searchState.setExplored();
+            scratch.close(current);
             // Update fringe
-            for (Vertex neighbour : current.neighbours) {
-                if (neighbour.isOutsideObstacle && !neighbour.searchState.isExplored) {
-                    addToFringe(fringe, current, neighbour);
+            if (current < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour != Roadmap.REMOVED && isOutsideObstacle(neighbour) && !scratch.isReached(neighbour)) {
+                        queue[tail++] = neighbour;
+                        scratch.reach(neighbour, current, scratch.distanceFromStart(current) + roadmap.edgeLengths[k]);
+                    }
                 }
             }
         }
-
-        PApplet.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
-        return Collections.singletonList(starts.get(agentIndex).position);
-    }
-
-    public List<Vec3> bfs(int agentIndex) {
-        PApplet.println("BFS");
-        resetSearchState(finishes.get(agentIndex).position);
-        return search(new LinkedList<>(), agentIndex);
+        return result(scratch, numVerticesExplored);
     }
 
     public List<Vec3> bfs() {
         return bfs(0);
     }
 
+    // Expands vertices by distance from start + heuristicWeight * heuristic, shortest paths when heuristicWeight <= 1
+    private int[] bestFirstSearch(SearchScratch scratch, float heuristicWeight, int agentIndex) {
+        final IndexedMinHeap openSet = scratch.openSet;
+        int numVerticesExplored = 0;
+
+        // Add start to fringe
+        int start = start(agentIndex);
+        scratch.reach(start, start, 0);
+        openSet.insert(start, heuristicWeight * scratch.heuristicDistanceToFinish(start));
+        while (!openSet.isEmpty()) {
+            // Pop one vertex
+            int current = openSet.popMin();
+            if (!uncheckedEdges.isEmpty() && !checkEdgeToPredecessor(scratch, current, heuristicWeight)) {
+                continue;
+            }
+            numVerticesExplored++;
+            // Check if finish
+            if (scratch.isAtFinish(current)) {
+                scratch.finish = current;
+                break;
+            }
+            // Mark this vertex as explored
+            scratch.close(current);
+            // Update fringe
+            if (current < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour == Roadmap.REMOVED || !isOutsideObstacle(neighbour) || scratch.isClosed(neighbour)) {
+                        continue;
+                    }
+                    float distanceFromStart = scratch.distanceFromStart(current) + roadmap.edgeLengths[k];
+                    if (scratch.isReached(neighbour) && distanceFromStart >= scratch.distanceFromStart(neighbour)) {
+                        continue;
+                    }
+                    scratch.reach(neighbour, current, distanceFromStart);
+                    openSet.insertOrDecreaseKey(neighbour,
+                            distanceFromStart + heuristicWeight * scratch.heuristicDistanceToFinish(neighbour));
+                }
+            }
+        }
+        return result(scratch, numVerticesExplored);
+    }
+
     public List<Vec3> ucs(int agentIndex) {
-        PApplet.println("UCS");
-        resetSearchState(finishes.get(agentIndex).position);
-        return search(new PriorityQueue<>((v1, v2) ->
-                        (int) (v1.searchState.distanceFromStart - v2.searchState.distanceFromStart)),
-                agentIndex);
+        if (LOG_SEARCHES) {
+            System.out.println("UCS");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> bestFirstSearch(scratch, 0, agentIndex));
     }
 
     public List<Vec3> ucs() {
@@ -232,12 +804,10 @@ public class MultiAgentGraph {
     }
 
     public List<Vec3> aStar(int agentIndex) {
-        PApplet.println("A*");
-        resetSearchState(finishes.get(agentIndex).position);
-        return search(new PriorityQueue<>((v1, v2) -> (int) (
-                        (v1.searchState.distanceFromStart + v1.searchState.heuristicDistanceToFinish)
-                                - (v2.searchState.distanceFromStart + v2.searchState.heuristicDistanceToFinish))),
-                agentIndex);
+        if (LOG_SEARCHES) {
+            System.out.println("A*");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> bestFirstSearch(scratch, 1, agentIndex));
     }
 
     public List<Vec3> aStar() {
@@ -245,16 +815,286 @@ public class MultiAgentGraph {
     }
 
     public List<Vec3> weightedAStar(final float epislon, int agentIndex) {
-        PApplet.println("Weighted A* with epsilon = " + epislon);
-        resetSearchState(finishes.get(agentIndex).position);
-        return search(new PriorityQueue<>((v1, v2) -> (int) (
-                        (v1.searchState.distanceFromStart + epislon * v1.searchState.heuristicDistanceToFinish)
-                                - (v2.searchState.distanceFromStart + epislon * v2.searchState.heuristicDistanceToFinish))),
-                agentIndex);
+        if (LOG_SEARCHES) {
+            System.out.println("Weighted A* with epsilon = " + epislon);
+        }
+        return searchCheckingEdges(agentIndex, scratch -> bestFirstSearch(scratch, epislon, agentIndex));
     }
 
     public List<Vec3> weightedAStar(final float epislon) {
         return weightedAStar(epislon, 0);
     }
 
+    public List<Vec3> bidirectionalAStar(int agentIndex) {
+        if (LOG_SEARCHES) {
+            System.out.println("Bidirectional A*");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> bidirectionalAStar(scratch, agentIndex));
+    }
+
+    public List<Vec3> bidirectionalAStar() {
+        return bidirectionalAStar(0);
+    }
+
+    public List<Vec3> contractionHierarchySearch(int agentIndex) {
+        if (LOG_SEARCHES) {
+            System.out.println("Contraction hierarchy");
+        }
+        return searchCheckingEdges(agentIndex, scratch -> contractionHierarchySearch(scratch, agentIndex));
+    }
+
+    public List<Vec3> contractionHierarchySearch() {
+        return contractionHierarchySearch(0);
+    }
+
+    // Shortest path to any finish vertex at the finish, as with the other searches, from a query in the contraction hierarchy
+    private int[] contractionHierarchySearch(SearchScratch forward, int agentIndex) {
+        ContractionHierarchy hierarchy = currentContractionHierarchy();
+        int start = start(agentIndex);
+        if (!hierarchy.contains(start)) {
+            // Starts inside obstacles are left out of the hierarchy, though searches can still leave them
+            return bestFirstSearch(forward, 1, agentIndex);
+        }
+        SearchScratch backward = backwardScratches.get();
+        backward.reset(positions, start, null);
+        for (int i = 0; i < numAgents; i++) {
+            int finish = finish(i);
+            if (forward.isAtFinish(finish) && hierarchy.contains(finish) && !backward.isReached(finish)) {
+                backward.reach(finish, finish, 0);
+                backward.openSet.insert(finish, 0);
+            }
+        }
+        int[] path = hierarchy.shortestPath(forward, start, backward);
+        if (path == null) {
+            if (LOG_SEARCHES) {
+                System.out.println("Could not reach finish, # vertices explored: " + forward.numVerticesExplored);
+            }
+            return null;
+        }
+        if (LOG_SEARCHES) {
+            System.out.println("Reached finish, # vertices explored: " + forward.numVerticesExplored);
+        }
+        forward.finish = path[path.length - 1];
+        return path;
+    }
+
+    // Key of v in the forward search, the backward search uses its negation
+    // Average of the forward and backward heuristics, edge costs reduced by it are non negative in both directions
+    private static float potential(SearchScratch forward, SearchScratch backward, int v) {
+        return (forward.heuristicDistanceToFinish(v) - backward.heuristicDistanceToFinish(v)) / 2;
+    }
+
+    // A* while its heuristic stays within BIDIRECTIONAL_SLACK, then bidirectional Dijkstra on reduced edge costs
+    private int[] bidirectionalAStar(SearchScratch forward, int agentIndex) {
+        int start = start(agentIndex);
+        int numVerticesExplored = 0;
+        float switchKey = (1 + BIDIRECTIONAL_SLACK) * forward.heuristicDistanceToFinish(start);
+        forward.reach(start, start, 0);
+        forward.openSet.insert(start, forward.heuristicDistanceToFinish(start));
+        while (!forward.openSet.isEmpty() && forward.openSet.key(forward.openSet.peekMin()) <= switchKey) {
+            int current = forward.openSet.popMin();
+            numVerticesExplored++;
+            if (forward.isAtFinish(current)) {
+                forward.finish = current;
+                return result(forward, numVerticesExplored);
+            }
+            forward.close(current);
+            if (current < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour == Roadmap.REMOVED || !isOutsideObstacle(neighbour) || forward.isClosed(neighbour)) {
+                        continue;
+                    }
+                    float distance = forward.distanceFromStart(current) + roadmap.edgeLengths[k];
+                    if (forward.isReached(neighbour) && distance >= forward.distanceFromStart(neighbour)) {
+                        continue;
+                    }
+                    forward.reach(neighbour, current, distance);
+                    forward.openSet.insertOrDecreaseKey(neighbour, distance + forward.heuristicDistanceToFinish(neighbour));
+                }
+            }
+        }
+        if (forward.openSet.isEmpty()) {
+            return result(forward, numVerticesExplored);
+        }
+
+        SearchScratch backward = backwardScratches.get();
+        // Heuristic distances of the backward search are to the start
+        backward.reset(positions, start, landmarks);
+        float shortest = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        forward.openSet.rekey(v -> forward.distanceFromStart(v) + potential(forward, backward, v));
+        for (int i = 0; i < numAgents; i++) {
+            int finish = finish(i);
+            if (forward.isAtFinish(finish) && !backward.isReached(finish)) {
+                backward.reach(finish, finish, 0);
+                backward.openSet.insert(finish, -potential(forward, backward, finish));
+                if (forward.isReached(finish) && forward.distanceFromStart(finish) < shortest) {
+                    shortest = forward.distanceFromStart(finish);
+                    meeting = finish;
+                }
+            }
+        }
+        while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+            if (forward.openSet.key(forward.openSet.peekMin()) + backward.openSet.key(backward.openSet.peekMin()) >= shortest) {
+                break;
+            }
+            boolean isForward = forward.openSet.size() <= backward.openSet.size();
+            SearchScratch scratch = isForward ? forward : backward;
+            SearchScratch other = isForward ? backward : forward;
+            // Pop one vertex
+            int current = scratch.openSet.popMin();
+            numVerticesExplored++;
+            // Mark this vertex as explored
+            scratch.close(current);
+            if (other.isClosed(current)) {
+                continue;
+            }
+            // Update fringe
+            if (current < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                    int neighbour = roadmap.targets[k];
+                    if (neighbour == Roadmap.REMOVED || !isOutsideObstacle(neighbour) || scratch.isClosed(neighbour)) {
+                        continue;
+                    }
+                    float distance = scratch.distanceFromStart(current) + roadmap.edgeLengths[k];
+                    if (scratch.isReached(neighbour) && distance >= scratch.distanceFromStart(neighbour)) {
+                        continue;
+                    }
+                    if (distance + scratch.heuristicDistanceToFinish(neighbour) >= shortest) {
+                        continue;
+                    }
+                    scratch.reach(neighbour, current, distance);
+                    float potential = potential(forward, backward, neighbour);
+                    scratch.openSet.insertOrDecreaseKey(neighbour, distance + (isForward ? potential : -potential));
+                    if (other.isReached(neighbour) && distance + other.distanceFromStart(neighbour) < shortest) {
+                        shortest = distance + other.distanceFromStart(neighbour);
+                        meeting = neighbour;
+                    }
+                }
+            }
+        }
+
+        forward.numVerticesExplored = numVerticesExplored;
+        if (meeting == -1) {
+            if (LOG_SEARCHES) {
+                System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+            }
+            return null;
+        }
+        if (LOG_SEARCHES) {
+            System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+        }
+        // Forward predecessors lead back to the start, backward ones on to the finish
+        int[] toMeeting = pathIndicesTo(forward, meeting);
+        int length = toMeeting.length;
+        for (int v = meeting; backward.predecessor(v) != v; v = backward.predecessor(v)) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(toMeeting, length);
+        for (int i = toMeeting.length; i < length; i++) {
+            path[i] = backward.predecessor(path[i - 1]);
+        }
+        forward.finish = path[length - 1];
+        return path;
+    }
+
+    // For every vertex, the next vertex on a shortest path to the goal, the goal itself at the goal, -1 if unreachable
+    static class GoalTree {
+        final int[] nextHop;
+
+        GoalTree(int numVertices) {
+            nextHop = new int[numVertices];
+            Arrays.fill(nextHop, -1);
+        }
+
+        boolean uses(int u, int v) {
+            return (u < nextHop.length && nextHop[u] == v) || (v < nextHop.length && nextHop[v] == u);
+        }
+
+        // Indices of the vertices from start to the goal, null if the goal can not be reached from start
+        int[] pathFrom(int start) {
+            if (start >= nextHop.length || nextHop[start] == -1) {
+                return null;
+            }
+            int length = 1;
+            for (int v = start; nextHop[v] != v; v = nextHop[v]) {
+                length++;
+            }
+            int[] path = new int[length];
+            path[0] = start;
+            for (int i = 1; i < length; i++) {
+                path[i] = nextHop[path[i - 1]];
+            }
+            return path;
+        }
+    }
+
+    // Shortest path read from the reverse shortest path tree shared by agents with a common finish, A* for a finish of its own
+    public List<Vec3> shortestPath(int agentIndex) {
+        int start = start(agentIndex);
+        Vec3 goal = position(finish(agentIndex));
+        if (numAgentsPerGoal.get(goal) < 2) {
+            return aStar(agentIndex);
+        }
+        while (true) {
+            GoalTree tree = goalTrees.get(goal);
+            if (tree == null) {
+                tree = reverseShortestPathTree(goal);
+                GoalTree stored = goalTrees.putIfAbsent(goal, tree);
+                if (stored != null) {
+                    tree = stored;
+                }
+            }
+            int[] path = tree.pathFrom(start);
+            if (path == null) {
+                return Collections.singletonList(position(start));
+            }
+            // Checking can remove edges of the tree and so drop it, the tree is then built again without them
+            if (uncheckedEdges.isEmpty() || !removeInvalidEdgesOnPath(path)) {
+                return positionsOf(path);
+            }
+        }
+    }
+
+    // Dijkstra from all vertices at goal, the roadmap is undirected so distances to and from them are the same
+    private GoalTree reverseShortestPathTree(Vec3 goal) {
+        GoalTree tree = new GoalTree(roadmap.numVertices);
+        float[] distanceToGoal = new float[roadmap.numVertices];
+        Arrays.fill(distanceToGoal, Float.POSITIVE_INFINITY);
+        BitSet closed = new BitSet(roadmap.numVertices);
+        IndexedMinHeap openSet = scratches.get().openSet;
+        openSet.clear();
+        openSet.ensureCapacity(numVertices());
+        for (int v = 0; v < roadmap.numVertices; v++) {
+            if (isAt(v, goal)) {
+                distanceToGoal[v] = 0;
+                tree.nextHop[v] = v;
+                openSet.insert(v, 0);
+            }
+        }
+        int numVerticesExplored = 0;
+        while (!openSet.isEmpty()) {
+            int current = openSet.popMin();
+            closed.set(current);
+            numVerticesExplored++;
+            for (int k = roadmap.offsets[current]; k < roadmap.offsets[current + 1]; k++) {
+                int neighbour = roadmap.targets[k];
+                if (neighbour == Roadmap.REMOVED || closed.get(neighbour) || !isOutsideObstacle(neighbour)) {
+                    continue;
+                }
+                float distance = distanceToGoal[current] + roadmap.edgeLengths[k];
+                if (distance < distanceToGoal[neighbour]) {
+                    distanceToGoal[neighbour] = distance;
+                    tree.nextHop[neighbour] = current;
+                    openSet.insertOrDecreaseKey(neighbour, distance);
+                }
+            }
+        }
+        if (LOG_SEARCHES) {
+            System.out.println("Reverse shortest path tree, # vertices explored: " + numVerticesExplored);
+        }
+        return tree;
+    }
+
 }
@@ -0,0 +1,127 @@
+package robot.planning.multiagentgraph;
+
+import robot.planning.IndexedMinHeap;
+
+import java.util.Arrays;
+
+// Per thread state of one search over the vertices of a MultiAgentGraph, reset in O(1) by generation stamps
+class SearchScratch {
+    private int[] generation = new int[0];
+    private int currentGeneration = 0;
+    // Expanded, for best first searches its distance from start is final
+    private boolean[] isClosed = new boolean[0];
+    private float[] distanceFromStart = new float[0];
+    // NaN until first asked for
+    private float[] heuristicDistanceToFinish = new float[0];
+    // Index of the vertex each vertex was reached from, the start is reached from itself, -1 if not reached
+    private int[] predecessor = new int[0];
+    // Stack of DFS and queue of BFS, each vertex enters at most once
+    int[] fringe = new int[0];
+    // Fringe of best first searches
+    final IndexedMinHeap openSet = new IndexedMinHeap(0);
+    // Positions as in MultiAgentGraph.positions
+    private float[] positions;
+    // Vertex heuristic distances are to, and bounded towards with landmarks, which may be null
+    private int finishVertex;
+    private Landmarks landmarks;
+    // Vertex at the position of finishVertex the search stopped at, -1 if it could not reach one
+    int finish = -1;
+    int numVerticesExplored = 0;
+
+    void reset(float[] positions, int finishVertex, Landmarks landmarks) {
+        int n = positions.length / 3;
+        if (generation.length < n) {
+            // New arrays are stamped 0, which is never a current generation
+            generation = new int[n];
+            isClosed = new boolean[n];
+            distanceFromStart = new float[n];
+            heuristicDistanceToFinish = new float[n];
+            predecessor = new int[n];
+            fringe = new int[n];
+        }
+        currentGeneration++;
+        if (currentGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(generation, 0);
+            currentGeneration = 1;
+        }
+        openSet.clear();
+        openSet.ensureCapacity(n);
+        this.positions = positions;
+        this.finishVertex = finishVertex;
+        this.landmarks = landmarks;
+        this.finish = -1;
+        this.numVerticesExplored = 0;
+    }
+
+    private boolean isCurrent(int v) {
+        return v < generation.length && generation[v] == currentGeneration;
+    }
+
+    // Clears what an earlier search left in the state of v the first time this search touches it
+    private void touch(int v) {
+        if (generation[v] != currentGeneration) {
+            generation[v] = currentGeneration;
+            isClosed[v] = false;
+            distanceFromStart[v] = 0;
+            heuristicDistanceToFinish[v] = Float.NaN;
+            predecessor[v] = -1;
+        }
+    }
+
+    // Added to the fringe at some point
+    boolean isReached(int v) {
+        return isCurrent(v) && predecessor[v] != -1;
+    }
+
+    boolean isClosed(int v) {
+        return isCurrent(v) && isClosed[v];
+    }
+
+    int predecessor(int v) {
+        return isCurrent(v) ? predecessor[v] : -1;
+    }
+
+    float distanceFromStart(int v) {
+        return isCurrent(v) ? distanceFromStart[v] : 0;
+    }
+
+    // Straight line distance, same float arithmetic as Vec3.minus followed by Vec3.norm, or the landmark bound if larger
+    // Other vertices at the finish are joined to the finish vertex by edges of length 0, so the bound holds for them as well
+    float heuristicDistanceToFinish(int v) {
+        touch(v);
+        if (Float.isNaN(heuristicDistanceToFinish[v])) {
+            float dx = positions[3 * v] - positions[3 * finishVertex];
+            float dy = positions[3 * v + 1] - positions[3 * finishVertex + 1];
+            float dz = positions[3 * v + 2] - positions[3 * finishVertex + 2];
+            heuristicDistanceToFinish[v] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (landmarks != null) {
+                heuristicDistanceToFinish[v] = Math.max(heuristicDistanceToFinish[v], landmarks.lowerBound(v, finishVertex));
+            }
+        }
+        return heuristicDistanceToFinish[v];
+    }
+
+    // Same comparison as Vec3.equals, agents with the same finish position share their finish vertices
+    boolean isAtFinish(int v) {
+        return Float.compare(positions[3 * v], positions[3 * finishVertex]) == 0
+                && Float.compare(positions[3 * v + 1], positions[3 * finishVertex + 1]) == 0
+                && Float.compare(positions[3 * v + 2], positions[3 * finishVertex + 2]) == 0;
+    }
+
+    void reach(int v, int from, float distance) {
+        touch(v);
+        predecessor[v] = from;
+        distanceFromStart[v] = distance;
+    }
+
+    // Back to not reached, for a vertex whose edges from closed vertices all turned out invalid, see LAZY_EDGES
+    void unreach(int v) {
+        touch(v);
+        predecessor[v] = -1;
+    }
+
+    void close(int v) {
+        touch(v);
+        isClosed[v] = true;
+    }
+}
@@ -1,7 +1,7 @@
 package robot.planning.optimalrrt;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +15,7 @@ class Vertex {
         return currId;
     }
 
-    private final PApplet applet;
+    private final Canvas applet;
     final int id;
     final Vec3 position;
     float costFromStart;
@@ -23,11 +23,11 @@ class Vertex {
     private final List<Vertex> children = new ArrayList<>();
     Vertex parent = null;
 
-    static Vertex of(PApplet parent, Vec3 position, float distanceFromStart) {
+    static Vertex of(Canvas parent, Vec3 position, float distanceFromStart) {
         return new Vertex(parent, position, distanceFromStart);
     }
 
-    public Vertex(PApplet applet, Vec3 position, float costFromStart) {
+    public Vertex(Canvas applet, Vec3 position, float costFromStart) {
         this.applet = applet;
         this.id = getNextId();
         this.position = Vec3.of(position);
@@ -1,8 +1,12 @@
 package robot.planning.replanninggraph;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
+import robot.planning.IndexedMinHeap;
+import robot.planning.NeighbourGrid;
+import robot.planning.Roadmap;
 import robot.sensing.ConfigurationSpace;
+import robot.sensing.EdgeBatch;
 
 import java.util.*;
 
@@ -10,16 +14,30 @@ public class ReplanningGraph {
     public static boolean DRAW_VERTICES = true;
     public static boolean DRAW_EDGES = false;
     public static float END_POINT_SIZE = 2f;
+    // Searches print their name and the number of vertices they explored, off for batches of searches
+    public static boolean LOG_SEARCHES = true;
+    // Bidirectional A* runs as A* until its smallest key exceeds the heuristic distance between start and finish by this fraction
+    public static float BIDIRECTIONAL_SLACK = 0.1f;
 
-    final PApplet parent;
+    final Canvas parent;
     public final Vertex start;
     final Vertex finish;
     final List<Vertex> vertices = new ArrayList<>();
+    // Edges between vertices, indexed like vertices
+    Roadmap roadmap = Roadmap.empty();
+    // Fringe of best first searches, reused across searches
+    final IndexedMinHeap openSet = new IndexedMinHeap(0);
+    // Fringe of the backward half of bidirectional searches
+    final IndexedMinHeap backwardOpenSet = new IndexedMinHeap(0);
+    // Vertices expanded by the last search, both directions for bidirectional searches
+    int numVerticesExplored = 0;
+    // Generation of the current search, search states of vertices stamped with another one are stale
+    int searchGeneration = 0;
 
-    public ReplanningGraph(PApplet parent, Vec3 startPosition, Vec3 finishPosition) {
+    public ReplanningGraph(Canvas parent, Vec3 startPosition, Vec3 finishPosition) {
         this.parent = parent;
-        this.start = Vertex.start(parent, startPosition, finishPosition.minus(startPosition).norm());
-        this.finish = Vertex.finish(parent, finishPosition, 0);
+        this.start = Vertex.start(parent, 0, startPosition, finishPosition.minus(startPosition).norm());
+        this.finish = Vertex.finish(parent, 1, finishPosition, 0);
         this.vertices.add(start);
         this.vertices.add(finish);
     }
@@ -29,28 +47,47 @@ public class ReplanningGraph {
             float distanceToFinish = finish.position.minus(position).norm();
             vertices.add(Vertex.of(
                     parent,
+                    vertices.size(),
                     position,
                     distanceToFinish));
         }
         int numEdges = 0;
+        int[] edges = new int[2 * 1024];
+        List<Vec3> positions = new ArrayList<>(vertices.size());
+        for (Vertex vertex : vertices) {
+            positions.add(vertex.position);
+        }
+        // Pairs within maxEdgeLen come out in the same order as comparing every pair i < j would give them
+        NeighbourGrid neighbourGrid = new NeighbourGrid(positions, maxEdgeLen);
+        NeighbourGrid.Neighbours neighbours = new NeighbourGrid.Neighbours();
         for (int i = 0; i < vertices.size() - 1; ++i) {
-            for (int j = i + 1; j < vertices.size(); j++) {
-                Vertex v1 = vertices.get(i);
-                Vertex v2 = vertices.get(j);
-                if (v1.position.minus(v2.position).norm() <= maxEdgeLen) {
-                    v1.addNeighbour(v2, Vec3.of(1));
-                    v2.addNeighbour(v1, Vec3.of(1));
-                    numEdges++;
+            neighbourGrid.neighboursAfter(i, neighbours);
+            for (int k = 0; k < neighbours.size; k++) {
+                if (2 * numEdges == edges.length) {
+                    edges = Arrays.copyOf(edges, 2 * edges.length);
                 }
+                edges[2 * numEdges] = i;
+                edges[2 * numEdges + 1] = neighbours.indices[k];
+                numEdges++;
             }
         }
-        PApplet.println("# edges generated: " + numEdges);
+        float[] roadmapPositions = new float[3 * vertices.size()];
+        for (int v = 0; v < vertices.size(); v++) {
+            roadmapPositions[3 * v] = positions.get(v).x;
+            roadmapPositions[3 * v + 1] = positions.get(v).y;
+            roadmapPositions[3 * v + 2] = positions.get(v).z;
+        }
+        roadmap = roadmap.withEdges(roadmapPositions, edges, numEdges);
+        System.out.println("# edges generated: " + numEdges);
     }
 
     public void draw() {
         if (DRAW_VERTICES) {
             for (Vertex vertex : vertices) {
-                vertex.draw();
+                vertex.draw(searchGeneration);
+                if (DRAW_EDGES) {
+                    drawEdges(vertex);
+                }
             }
         }
         // Start
@@ -69,6 +106,21 @@ public class ReplanningGraph {
         parent.popMatrix();
     }
 
+    private void drawEdges(Vertex vertex) {
+        if (vertex.index >= roadmap.numVertices) {
+            return;
+        }
+        parent.stroke(1, 1, 1);
+        for (int k = roadmap.offsets[vertex.index]; k < roadmap.offsets[vertex.index + 1]; k++) {
+            if (roadmap.targets[k] == Roadmap.REMOVED) {
+                continue;
+            }
+            Vertex neighbour = vertices.get(roadmap.targets[k]);
+            parent.line(vertex.position.x, vertex.position.y, vertex.position.z,
+                    neighbour.position.x, neighbour.position.y, neighbour.position.z);
+        }
+    }
+
     public boolean senseAndUpdate(Vec3 center, float radius, ConfigurationSpace configurationSpace) {
         boolean obstaclesDetected = false;
         List<Vertex> sensedVertices = new ArrayList<>();
@@ -85,42 +137,74 @@ public class ReplanningGraph {
                 obstaclesDetected = true;
             }
         }
+        // Collect all edges of sensed vertices and check them in one batch, an edge between two sensed vertices is collected once
+        EdgeBatch sensedEdges = new EdgeBatch();
+        List<Vertex> sensedEdgeEnds = new ArrayList<>();
+        BitSet collectedVertices = new BitSet(vertices.size());
         for (Vertex vertex : sensedVertices) {
-            // Collect all neighbours to remove
-            List<Vertex> neighboursToRemove = new ArrayList<>();
-            for (Vertex neighbour : vertex.neighbours) {
-                if (configurationSpace.doesEdgeIntersectSomeObstacle(vertex.position, neighbour.position)) {
-                    neighboursToRemove.add(neighbour);
+            if (vertex.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[vertex.index]; k < roadmap.offsets[vertex.index + 1]; k++) {
+                    int target = roadmap.targets[k];
+                    if (target != Roadmap.REMOVED && !collectedVertices.get(target)) {
+                        Vertex neighbour = vertices.get(target);
+                        sensedEdges.add(vertex.position, neighbour.position);
+                        sensedEdgeEnds.add(vertex);
+                        sensedEdgeEnds.add(neighbour);
+                    }
                 }
             }
-            // Actually remove them here; all this to avoid java.util.ConcurrentModificationException
-            for (Vertex neighbour : neighboursToRemove) {
-                vertex.removeNeighbour(neighbour);
-                obstaclesDetected = true;
-            }
+            collectedVertices.set(vertex.index);
+        }
+        BitSet invalid = sensedEdges.check(configurationSpace);
+        // Removed after all edges are collected so that the rows being walked do not change
+        for (int k = invalid.nextSetBit(0); k >= 0; k = invalid.nextSetBit(k + 1)) {
+            roadmap.removeEdge(sensedEdgeEnds.get(2 * k).index, sensedEdgeEnds.get(2 * k + 1).index);
+            obstaclesDetected = true;
         }
         return obstaclesDetected;
     }
 
+    // O(1), vertices reset their search state when it is first asked for
     private void resetSearchState() {
-        for (Vertex v : vertices) {
-            if (v.isOutsideObstacle) {
-                v.searchState.reset();
-            }
+        searchGeneration++;
+    }
+
+    private Vertex.SearchState stateOf(Vertex vertex) {
+        return vertex.searchState(searchGeneration);
+    }
+
+    // Vertices from the start to finish following predecessors, empty if finish was not reached
+    // Only the returned path is allocated
+    private List<Vertex> pathTo(Vertex finish) {
+        if (stateOf(finish).predecessor == -1) {
+            return Collections.emptyList();
         }
+        int length = 1;
+        for (Vertex v = finish; stateOf(v).predecessor != v.index; v = vertices.get(stateOf(v).predecessor)) {
+            length++;
+        }
+        Vertex[] path = new Vertex[length];
+        Vertex v = finish;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = v;
+            v = vertices.get(stateOf(v).predecessor);
+        }
+        return Arrays.asList(path);
     }
 
     private void addToFringe(final Stack<Vertex> fringe, final Vertex current, final Vertex next) {
         fringe.add(next);
-        next.searchState.addToFringeFrom(current);
+        stateOf(next).addToFringeFrom(current);
     }
 
     public List<Vertex> dfs(final Vertex start) {
-        PApplet.println("DFS");
+        if (LOG_SEARCHES) {
+            System.out.println("DFS");
+        }
 
         resetSearchState();
         final Stack<Vertex> fringe = new Stack<>();
-        int numVerticesExplored = 0;
+        numVerticesExplored = 0;
 
         // Add start to fringe
         addToFringe(fringe, start, start);
@@ -130,86 +214,350 @@ public class ReplanningGraph {
             numVerticesExplored++;
             // Check if finish
             if (current.isFinishVertex()) {
-                PApplet.println("Reached finish, # vertices explored: " + numVerticesExplored);
-                return finish.searchState.pathFromStart;
+                if (LOG_SEARCHES) {
+                    System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+                }
+                return pathTo(finish);
             }
             // Mark this vertex as explored
-            current.searchState.setExplored();
+            stateOf(current).setExplored();
             // Update fringe
-            for (Vertex neighbour : current.neighbours) {
-                if (neighbour.isOutsideObstacle && !neighbour.searchState.isExplored) {
-                    addToFringe(fringe, current, neighbour);
+            if (current.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current.index]; k < roadmap.offsets[current.index + 1]; k++) {
+                    if (roadmap.targets[k] == Roadmap.REMOVED) {
+                        continue;
+                    }
+                    Vertex neighbour = vertices.get(roadmap.targets[k]);
+                    if (neighbour.isOutsideObstacle && !stateOf(neighbour).isExplored) {
+                        addToFringe(fringe, current, neighbour);
+                    }
                 }
             }
         }
 
-        PApplet.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+        if (LOG_SEARCHES) {
+            System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+        }
         return Collections.singletonList(start);
     }
 
-    private void addToFringe(final Queue<Vertex> fringe, final Vertex current, final Vertex next) {
-        next.searchState.distanceFromStart = current.searchState.distanceFromStart + next.position.minus(current.position).norm();
+    private void addToFringe(final Queue<Vertex> fringe, final Vertex current, final Vertex next, final float edgeLength) {
+        stateOf(next).distanceFromStart = stateOf(current).distanceFromStart + edgeLength;
         fringe.add(next);
-        next.searchState.addToFringeFrom(current);
+        stateOf(next).addToFringeFrom(current);
     }
 
     private List<Vertex> search(final Vertex start, final Queue<Vertex> fringe) {
-        int numVerticesExplored = 0;
+        numVerticesExplored = 0;
 
         // Add start to fringe
-        addToFringe(fringe, start, start);
+        addToFringe(fringe, start, start, 0);
         while (fringe.size() > 0) {
             // Pop one vertex
             Vertex current = fringe.remove();
             numVerticesExplored++;
             // Check if finish
             if (current.isFinishVertex()) {
-                PApplet.println("Reached finish, # vertices explored: " + numVerticesExplored);
-                return finish.searchState.pathFromStart;
+                if (LOG_SEARCHES) {
+                    System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+                }
+                return pathTo(finish);
             }
             // Mark this vertex as explored
-            current.searchState.setExplored();
+            stateOf(current).setExplored();
             // Update fringe
-            for (Vertex neighbour : current.neighbours) {
-                if (neighbour.isOutsideObstacle && !neighbour.searchState.isExplored) {
-                    addToFringe(fringe, current, neighbour);
+            if (current.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current.index]; k < roadmap.offsets[current.index + 1]; k++) {
+                    if (roadmap.targets[k] == Roadmap.REMOVED) {
+                        continue;
+                    }
+                    Vertex neighbour = vertices.get(roadmap.targets[k]);
+                    if (neighbour.isOutsideObstacle && !stateOf(neighbour).isExplored) {
+                        addToFringe(fringe, current, neighbour, roadmap.edgeLengths[k]);
+                    }
                 }
             }
         }
 
-        PApplet.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+        if (LOG_SEARCHES) {
+            System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+        }
         return Collections.singletonList(start);
     }
 
     public List<Vertex> bfs(final Vertex start) {
-        PApplet.println("BFS");
+        if (LOG_SEARCHES) {
+            System.out.println("BFS");
+        }
         resetSearchState();
         return search(start, new LinkedList<>());
     }
 
+    // Expands vertices in order of distance from start + heuristicWeight * heuristic distance to finish
+    // A vertex whose distance improves while on the fringe has its key decreased instead of being added again,
+    // and expanded vertices are closed, so with heuristicWeight <= 1 the path is a shortest one in the roadmap
+    private List<Vertex> bestFirstSearch(final Vertex start, float heuristicWeight) {
+        numVerticesExplored = 0;
+        openSet.clear();
+        openSet.ensureCapacity(vertices.size());
+
+        // Add start to fringe
+        stateOf(start).distanceFromStart = 0;
+        stateOf(start).addToFringeFrom(start);
+        openSet.insert(start.index, heuristicWeight * start.heuristicDistanceToFinish);
+        while (!openSet.isEmpty()) {
+            // Pop one vertex
+            Vertex current = vertices.get(openSet.popMin());
+            numVerticesExplored++;
+            // Check if finish
+            if (current.isFinishVertex()) {
+                if (LOG_SEARCHES) {
+                    System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+                }
+                return pathTo(finish);
+            }
+            // Mark this vertex as explored
+            stateOf(current).setExplored();
+            // Update fringe
+            if (current.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current.index]; k < roadmap.offsets[current.index + 1]; k++) {
+                    if (roadmap.targets[k] == Roadmap.REMOVED) {
+                        continue;
+                    }
+                    Vertex neighbour = vertices.get(roadmap.targets[k]);
+                    if (!neighbour.isOutsideObstacle) {
+                        continue;
+                    }
+                    Vertex.SearchState neighbourState = stateOf(neighbour);
+                    if (neighbourState.isClosed) {
+                        continue;
+                    }
+                    float distanceFromStart = stateOf(current).distanceFromStart + roadmap.edgeLengths[k];
+                    if (neighbourState.isExplored && distanceFromStart >= neighbourState.distanceFromStart) {
+                        continue;
+                    }
+                    neighbourState.distanceFromStart = distanceFromStart;
+                    neighbourState.addToFringeFrom(current);
+                    openSet.insertOrDecreaseKey(neighbour.index,
+                            distanceFromStart + heuristicWeight * neighbour.heuristicDistanceToFinish);
+                }
+            }
+        }
+
+        if (LOG_SEARCHES) {
+            System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+        }
+        return Collections.singletonList(start);
+    }
+
     public List<Vertex> ucs(final Vertex start) {
-        PApplet.println("UCS");
+        if (LOG_SEARCHES) {
+            System.out.println("UCS");
+        }
         resetSearchState();
-        return search(start, new PriorityQueue<>((v1, v2) ->
-                (int) (v1.searchState.distanceFromStart - v2.searchState.distanceFromStart)));
+        return bestFirstSearch(start, 0);
     }
 
     public List<Vertex> aStar(final Vertex start) {
-        PApplet.println("A*");
+        if (LOG_SEARCHES) {
+            System.out.println("A*");
+        }
         resetSearchState();
-        return search(start, new PriorityQueue<>((v1, v2) -> (int) (
-                (v1.searchState.distanceFromStart + v1.heuristicDistanceToFinish)
-                        - (v2.searchState.distanceFromStart + v2.heuristicDistanceToFinish)
-        )));
+        return bestFirstSearch(start, 1);
     }
 
     public List<Vertex> weightedAStar(final Vertex start, final float epislon) {
-        PApplet.println("Weighted A* with epsilon = " + epislon);
+        if (LOG_SEARCHES) {
+            System.out.println("Weighted A* with epsilon = " + epislon);
+        }
+        resetSearchState();
+        return bestFirstSearch(start, epislon);
+    }
+
+    // Heuristic of the backward half of bidirectional searches, computed the first time it is asked for in a search
+    private float heuristicDistanceToStart(final Vertex vertex, final Vertex start) {
+        Vertex.SearchState state = stateOf(vertex);
+        if (Float.isNaN(state.heuristicDistanceToStart)) {
+            state.heuristicDistanceToStart = start.position.minus(vertex.position).norm();
+        }
+        return state.heuristicDistanceToStart;
+    }
+
+    // Key of vertex in the forward search, the backward search uses its negation
+    // Average of the forward and backward heuristics, edge costs reduced by it are non negative in both directions
+    private float potential(final Vertex vertex, final Vertex start) {
+        return (vertex.heuristicDistanceToFinish - heuristicDistanceToStart(vertex, start)) / 2;
+    }
+
+    // A* from start while its smallest key stays within BIDIRECTIONAL_SLACK of the heuristic distance between the ends,
+    // beyond that the heuristic is weak and the search goes on backwards from finish as well
+    // Switching keeps the vertices A* closed and rekeys its fringe to the average potential, both directions are then
+    // Dijkstra on the reduced edge costs, expanding whichever fringe is smaller, and can stop as soon as the smallest keys
+    // of both fringes add up to at least the shortest path through a vertex reached from both sides
+    // Vertices whose distance plus heuristic already reach that path are not added, and vertices the other direction
+    // closed are not expanded, paths through them were counted when it reached them
+    public List<Vertex> bidirectionalAStar(final Vertex start) {
+        if (LOG_SEARCHES) {
+            System.out.println("Bidirectional A*");
+        }
         resetSearchState();
-        return search(start, new PriorityQueue<>((v1, v2) -> (int) (
-                (v1.searchState.distanceFromStart + epislon * v1.heuristicDistanceToFinish)
-                        - (v2.searchState.distanceFromStart + epislon * v2.heuristicDistanceToFinish)
-        )));
+        numVerticesExplored = 0;
+        float switchKey = (1 + BIDIRECTIONAL_SLACK) * start.heuristicDistanceToFinish;
+        openSet.clear();
+        openSet.ensureCapacity(vertices.size());
+        backwardOpenSet.clear();
+        backwardOpenSet.ensureCapacity(vertices.size());
+
+        // Add start to fringe
+        stateOf(start).distanceFromStart = 0;
+        stateOf(start).addToFringeFrom(start);
+        openSet.insert(start.index, start.heuristicDistanceToFinish);
+        while (!openSet.isEmpty() && openSet.key(openSet.peekMin()) <= switchKey) {
+            // Pop one vertex
+            Vertex current = vertices.get(openSet.popMin());
+            numVerticesExplored++;
+            // Check if finish
+            if (current.isFinishVertex()) {
+                if (LOG_SEARCHES) {
+                    System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+                }
+                return pathTo(finish);
+            }
+            // Mark this vertex as explored
+            stateOf(current).setExplored();
+            // Update fringe
+            if (current.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current.index]; k < roadmap.offsets[current.index + 1]; k++) {
+                    if (roadmap.targets[k] == Roadmap.REMOVED) {
+                        continue;
+                    }
+                    Vertex neighbour = vertices.get(roadmap.targets[k]);
+                    if (!neighbour.isOutsideObstacle) {
+                        continue;
+                    }
+                    Vertex.SearchState neighbourState = stateOf(neighbour);
+                    if (neighbourState.isClosed) {
+                        continue;
+                    }
+                    float distanceFromStart = stateOf(current).distanceFromStart + roadmap.edgeLengths[k];
+                    if (neighbourState.isExplored && distanceFromStart >= neighbourState.distanceFromStart) {
+                        continue;
+                    }
+                    neighbourState.distanceFromStart = distanceFromStart;
+                    neighbourState.addToFringeFrom(current);
+                    openSet.insertOrDecreaseKey(neighbour.index, distanceFromStart + neighbour.heuristicDistanceToFinish);
+                }
+            }
+        }
+
+        // Add finish to the backward fringe
+        float shortest = Float.POSITIVE_INFINITY;
+        Vertex meeting = null;
+        if (!openSet.isEmpty()) {
+            openSet.rekey(v -> stateOf(vertices.get(v)).distanceFromStart + potential(vertices.get(v), start));
+            stateOf(finish).distanceToFinish = 0;
+            stateOf(finish).addToBackwardFringeFrom(finish);
+            backwardOpenSet.insert(finish.index, -potential(finish, start));
+            if (stateOf(finish).isExplored) {
+                shortest = stateOf(finish).distanceFromStart;
+                meeting = finish;
+            }
+        }
+        while (!openSet.isEmpty() && !backwardOpenSet.isEmpty()) {
+            if (openSet.key(openSet.peekMin()) + backwardOpenSet.key(backwardOpenSet.peekMin()) >= shortest) {
+                break;
+            }
+            boolean isForward = openSet.size() <= backwardOpenSet.size();
+            // Pop one vertex
+            Vertex current = vertices.get((isForward ? openSet : backwardOpenSet).popMin());
+            numVerticesExplored++;
+            // Mark this vertex as explored
+            Vertex.SearchState currentState = stateOf(current);
+            if (isForward) {
+                currentState.setExplored();
+                if (currentState.isBackwardClosed) {
+                    continue;
+                }
+            } else {
+                currentState.setBackwardExplored();
+                if (currentState.isClosed) {
+                    continue;
+                }
+            }
+            // Update fringe, edges are undirected so the same rows serve both directions
+            if (current.index < roadmap.numVertices) {
+                for (int k = roadmap.offsets[current.index]; k < roadmap.offsets[current.index + 1]; k++) {
+                    if (roadmap.targets[k] == Roadmap.REMOVED) {
+                        continue;
+                    }
+                    Vertex neighbour = vertices.get(roadmap.targets[k]);
+                    if (!neighbour.isOutsideObstacle) {
+                        continue;
+                    }
+                    Vertex.SearchState neighbourState = stateOf(neighbour);
+                    float distance;
+                    if (isForward) {
+                        if (neighbourState.isClosed) {
+                            continue;
+                        }
+                        distance = currentState.distanceFromStart + roadmap.edgeLengths[k];
+                        if (neighbourState.isExplored && distance >= neighbourState.distanceFromStart) {
+                            continue;
+                        }
+                        if (distance + neighbour.heuristicDistanceToFinish >= shortest) {
+                            continue;
+                        }
+                        neighbourState.distanceFromStart = distance;
+                        neighbourState.addToFringeFrom(current);
+                        openSet.insertOrDecreaseKey(neighbour.index, distance + potential(neighbour, start));
+                    } else {
+                        if (neighbourState.isBackwardClosed) {
+                            continue;
+                        }
+                        distance = currentState.distanceToFinish + roadmap.edgeLengths[k];
+                        if (neighbourState.isBackwardExplored && distance >= neighbourState.distanceToFinish) {
+                            continue;
+                        }
+                        if (distance + heuristicDistanceToStart(neighbour, start) >= shortest) {
+                            continue;
+                        }
+                        neighbourState.distanceToFinish = distance;
+                        neighbourState.addToBackwardFringeFrom(current);
+                        backwardOpenSet.insertOrDecreaseKey(neighbour.index, distance - potential(neighbour, start));
+                    }
+                    if (neighbourState.isExplored && neighbourState.isBackwardExplored
+                            && neighbourState.distanceFromStart + neighbourState.distanceToFinish < shortest) {
+                        shortest = neighbourState.distanceFromStart + neighbourState.distanceToFinish;
+                        meeting = neighbour;
+                    }
+                }
+            }
+        }
+
+        if (meeting == null) {
+            if (LOG_SEARCHES) {
+                System.out.println("Could not reach finish, # vertices explored: " + numVerticesExplored);
+            }
+            return Collections.singletonList(start);
+        }
+        if (LOG_SEARCHES) {
+            System.out.println("Reached finish, # vertices explored: " + numVerticesExplored);
+        }
+        // Predecessors lead back to start, successors on to finish
+        List<Vertex> toMeeting = pathTo(meeting);
+        int length = toMeeting.size();
+        for (Vertex v = meeting; stateOf(v).successor != v.index; v = vertices.get(stateOf(v).successor)) {
+            length++;
+        }
+        Vertex[] path = toMeeting.toArray(new Vertex[length]);
+        for (int i = toMeeting.size(); i < length; i++) {
+            path[i] = vertices.get(stateOf(path[i - 1]).successor);
+        }
+        return Arrays.asList(path);
+    }
+
+    public int numVerticesExplored() {
+        return numVerticesExplored;
     }
 
 }
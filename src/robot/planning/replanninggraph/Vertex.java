@@ -1,11 +1,7 @@
 package robot.planning.replanninggraph;
 
 import math.Vec3;
-import processing.core.PApplet;
-import processing.core.PConstants;
-
-import java.util.ArrayList;
-import java.util.List;
+import graphics.Canvas;
 
 public class Vertex {
     private static final int START_ID = -1;
@@ -19,26 +15,45 @@ public class Vertex {
         return currId;
     }
 
-    private final PApplet parent;
+    private final Canvas parent;
     private final int id;
+    // Index in the graph and in its roadmap
+    final int index;
     public final Vec3 position;
     final float heuristicDistanceToFinish;
 
     boolean isOutsideObstacle = true;
     public boolean isSensed = false;
-    final List<Vertex> neighbours = new ArrayList<>();
-    final List<Vec3> edgeColors = new ArrayList<>();
 
     class SearchState {
+        // Search the state belongs to, see searchState(int)
+        int generation = 0;
+        // Added to the fringe at some point
         boolean isExplored = false;
+        // Expanded by a best first search, its distance from start is final
+        boolean isClosed = false;
         float distanceFromStart = 0;
-        List<Vertex> pathFromStart = new ArrayList<>();
+        // Index of the vertex this one was reached from, the start is reached from itself, -1 if not reached
+        int predecessor = -1;
+        // Same as above for the backward half of bidirectional searches, which starts from finish
+        boolean isBackwardExplored = false;
+        boolean isBackwardClosed = false;
+        float distanceToFinish = 0;
+        int successor = -1;
+        // NaN until a bidirectional search first asks for it
+        float heuristicDistanceToStart = Float.NaN;
         private Vec3 color = Vec3.of(1);
 
         void reset() {
             isExplored = false;
+            isClosed = false;
             distanceFromStart = 0;
-            pathFromStart.clear();
+            predecessor = -1;
+            isBackwardExplored = false;
+            isBackwardClosed = false;
+            distanceToFinish = 0;
+            successor = -1;
+            heuristicDistanceToStart = Float.NaN;
             if (Vertex.this.isOutsideObstacle) {
                 if (Vertex.this.isSensed) {
                     color.set(1, 1, 0);
@@ -52,12 +67,25 @@ public class Vertex {
 
         void addToFringeFrom(Vertex parent) {
             isExplored = true;
-            pathFromStart.addAll(parent.searchState.pathFromStart);
-            pathFromStart.add(Vertex.this);
+            predecessor = parent.index;
             color.set(0, 1, 0);
         }
 
         void setExplored() {
+            isClosed = true;
+            color.set(1, 0, 0);
+        }
+
+        void addToBackwardFringeFrom(Vertex child) {
+            isBackwardExplored = true;
+            successor = child.index;
+            if (!isClosed) {
+                color.set(0, 1, 0);
+            }
+        }
+
+        void setBackwardExplored() {
+            isBackwardClosed = true;
             color.set(1, 0, 0);
         }
 
@@ -70,73 +98,50 @@ public class Vertex {
         }
     }
 
-    final SearchState searchState;
+    private final SearchState searchState;
+
+    // State in the search of the given generation, what an earlier search left is reset the first time it is asked for,
+    // so starting a search does not have to visit every vertex
+    SearchState searchState(int generation) {
+        if (searchState.generation != generation) {
+            searchState.generation = generation;
+            searchState.reset();
+        }
+        return searchState;
+    }
 
-    static Vertex start(PApplet parent, Vec3 position, float distanceToFinish) {
-        return new Vertex(parent, START_ID, position, distanceToFinish);
+    static Vertex start(Canvas parent, int index, Vec3 position, float distanceToFinish) {
+        return new Vertex(parent, START_ID, index, position, distanceToFinish);
     }
 
-    static Vertex finish(PApplet parent, Vec3 position, float distanceToFinish) {
-        return new Vertex(parent, FINISH_ID, position, distanceToFinish);
+    static Vertex finish(Canvas parent, int index, Vec3 position, float distanceToFinish) {
+        return new Vertex(parent, FINISH_ID, index, position, distanceToFinish);
     }
 
-    static Vertex of(PApplet parent, Vec3 position, float distanceToFinish) {
-        return new Vertex(parent, getNextId(), position, distanceToFinish);
+    static Vertex of(Canvas parent, int index, Vec3 position, float distanceToFinish) {
+        return new Vertex(parent, getNextId(), index, position, distanceToFinish);
     }
 
-    private Vertex(PApplet parent, int id, Vec3 position, float heuristicDistanceToFinish) {
+    private Vertex(Canvas parent, int id, int index, Vec3 position, float heuristicDistanceToFinish) {
         this.parent = parent;
         this.id = id;
+        this.index = index;
         this.position = Vec3.of(position);
         this.heuristicDistanceToFinish = heuristicDistanceToFinish;
         this.searchState = new SearchState();
     }
 
-    void draw() {
+    void draw(int generation) {
+        Vec3 color = searchState(generation).color;
         parent.pushMatrix();
-        parent.fill(searchState.color.x, searchState.color.y, searchState.color.z);
-        parent.stroke(searchState.color.x, searchState.color.y, searchState.color.z);
-        parent.beginShape(PConstants.TRIANGLE);
+        parent.fill(color.x, color.y, color.z);
+        parent.stroke(color.x, color.y, color.z);
+        parent.beginShape(Canvas.TRIANGLE);
         parent.vertex(position.x, position.y, position.z);
         parent.vertex(position.x, position.y + 1, position.z + 1);
         parent.vertex(position.x, position.y, position.z + 1);
         parent.endShape();
         parent.popMatrix();
-        if (ReplanningGraph.DRAW_EDGES) {
-            for (int i = 0; i < neighbours.size(); ++i) {
-                Vertex neighbour = neighbours.get(i);
-                Vec3 color = edgeColors.get(i);
-                parent.stroke(color.x, color.y, color.z);
-                parent.line(this.position.x, this.position.y, this.position.z,
-                        neighbour.position.x, neighbour.position.y, neighbour.position.z);
-            }
-        }
-    }
-
-    void addNeighbour(Vertex other, Vec3 color) {
-        neighbours.add(other);
-        edgeColors.add(color);
-    }
-
-    void removeNeighbour(Vertex neighbour) {
-        int indexToRemove = -1;
-        for (int i = 0; i < neighbours.size(); i++) {
-            if (neighbours.get(i).id == neighbour.id) {
-                indexToRemove = i;
-                break;
-            }
-        }
-        // remove this from the neighbour's neighbour list
-        int indexToRemoveInNeighbour = -1;
-        List<Vertex> neighboursOfToBeRemovedNeighbour = neighbours.get(indexToRemove).neighbours;
-        for (int i = 0; i < neighboursOfToBeRemovedNeighbour.size(); i++) {
-            if (neighboursOfToBeRemovedNeighbour.get(i).id == this.id) {
-                indexToRemoveInNeighbour = i;
-                break;
-            }
-        }
-        neighbours.get(indexToRemove).neighbours.remove(indexToRemoveInNeighbour);
-        neighbours.remove(indexToRemove);
     }
 
     void setSensed() {
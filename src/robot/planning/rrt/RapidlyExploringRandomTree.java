@@ -1,7 +1,8 @@
 package robot.planning.rrt;
 
+import math.RandomSource;
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 import robot.sensing.ConfigurationSpace;
 
 import java.util.*;
@@ -11,13 +12,15 @@ public class RapidlyExploringRandomTree {
     public static float END_POINT_HINT_SIZE = 2f;
     public static boolean DRAW_TREE = true;
 
-    final PApplet applet;
+    final Canvas applet;
+    final RandomSource random;
     final Vec3 startPosition;
     final Vec3 finishPosition;
     final Vertex root;
 
-    public RapidlyExploringRandomTree(PApplet applet, Vec3 startPosition, Vec3 finishPosition) {
+    public RapidlyExploringRandomTree(Canvas applet, RandomSource random, Vec3 startPosition, Vec3 finishPosition) {
         this.applet = applet;
+        this.random = random;
         this.startPosition = Vec3.of(startPosition);
         this.finishPosition = Vec3.of(finishPosition);
         this.root = Vertex.of(applet, startPosition);
@@ -72,7 +75,7 @@ public class RapidlyExploringRandomTree {
     public void growTree(List<Vec3> newPositions, ConfigurationSpace configurationSpace) {
         for (Vec3 newPosition : newPositions) {
             // generate node at finish position with a small probability
-            if (applet.random(1) <= 0.01) {
+            if (random.random(1) <= 0.01) {
                 generateNextNode(finishPosition, configurationSpace);
             }
             generateNextNode(newPosition, configurationSpace);
@@ -119,7 +122,7 @@ public class RapidlyExploringRandomTree {
             }
             return path;
         }
-        PApplet.println("Could not find path to finish position");
+        System.out.println("Could not find path to finish position");
         return Collections.singletonList(startPosition);
     }
 }
@@ -1,7 +1,7 @@
 package robot.planning.rrt;
 
 import math.Vec3;
-import processing.core.PApplet;
+import graphics.Canvas;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,18 +15,18 @@ class Vertex {
         return currId;
     }
 
-    private final PApplet applet;
+    private final Canvas applet;
     private final int id;
     final Vec3 position;
 
     private final List<Vertex> children = new ArrayList<>();
     Vertex parent = null;
 
-    static Vertex of(PApplet parent, Vec3 position) {
+    static Vertex of(Canvas parent, Vec3 position) {
         return new Vertex(parent, position);
     }
 
-    public Vertex(PApplet applet, Vec3 position) {
+    public Vertex(Canvas applet, Vec3 position) {
         this.applet = applet;
         this.id = getNextId();
         this.position = Vec3.of(position);
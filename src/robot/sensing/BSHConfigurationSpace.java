@@ -1,47 +1,231 @@
 package robot.sensing;
 
+import math.RandomSource;
 import math.Vec3;
 import robot.input.SphericalAgentDescription;
 import fixed.SphericalObstacle;
-import processing.core.PApplet;
+import graphics.Canvas;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-
-class BoundingSphere {
-    final List<BoundingSphere> children = new ArrayList<>();
-    final Vec3 center;
-    final float radius;
-    final Vec3 color;
-
-    public BoundingSphere(Vec3 center, float radius, Vec3 color) {
-        this.center = center;
-        this.color = color;
-        this.radius = radius;
-    }
-}
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class BSHConfigurationSpace extends ConfigurationSpace {
     public static boolean DRAW_BOUNDING_SPHERES = false;
+    // Greedy closest pair merging is O(n^3), top down median split is O(n log n)
+    public static boolean GREEDY_CONSTRUCTION = false;
     public static float BOUNDING_SPHERE_COMPRESSION_SLACK = 100f;
-    final PApplet parent;
+    // Rebuild from scratch once this fraction of obstacles has been added, removed or moved far since last build
+    public static float REBUILD_FRACTION = 0.5f;
+    // Top down construction builds subtrees with at least this many leaves in parallel on CONSTRUCTION_POOL
+    public static boolean PARALLEL_CONSTRUCTION = true;
+    public static int PARALLEL_CONSTRUCTION_THRESHOLD = 4096;
+    public static ForkJoinPool CONSTRUCTION_POOL = ForkJoinPool.commonPool();
+    final Canvas parent;
+    final RandomSource random;
     final SphericalAgentDescription sphericalAgentDescription;
-    final BoundingSphere root;
+    final Map<SphericalObstacle, BoundingSphere> leaves = new IdentityHashMap<>();
+    // null when there are no obstacles
+    BoundingSphere root;
+    int numUpdatesSinceBuild = 0;
+    // Compiled form of root used for queries, null when stale
+    private volatile LinearBoundingSphereHierarchy linearHierarchy;
 
-    public BSHConfigurationSpace(final PApplet parent, final SphericalAgentDescription sphericalAgentDescription, final List<SphericalObstacle> sphericalObstacles) {
+    public BSHConfigurationSpace(final Canvas parent, final RandomSource random, final SphericalAgentDescription sphericalAgentDescription, final List<SphericalObstacle> sphericalObstacles) {
         this.parent = parent;
+        this.random = random;
         this.sphericalAgentDescription = sphericalAgentDescription;
 
-        if (sphericalObstacles.size() == 0) {
-            throw new IllegalArgumentException("Need at least one obstacle");
-        }
-
         List<BoundingSphere> boundingSpheres = new ArrayList<>(sphericalObstacles.size());
         // Initialize bounding spheres as obstacles themselves
         for (SphericalObstacle o : sphericalObstacles) {
-            boundingSpheres.add(new BoundingSphere(o.center, o.radius, Vec3.of(1)));
+            BoundingSphere leaf = BoundingSphere.of(o);
+            if (leaves.put(o, leaf) != null) {
+                throw new IllegalArgumentException("Obstacle added twice");
+            }
+            boundingSpheres.add(leaf);
+        }
+
+        if (boundingSpheres.size() == 0) {
+            this.root = null;
+        } else if (GREEDY_CONSTRUCTION) {
+            this.root = buildGreedy(boundingSpheres);
+        } else {
+            this.root = buildTopDown(boundingSpheres.toArray(new BoundingSphere[0]), 0, boundingSpheres.size());
+        }
+        if (root != null) {
+            System.out.println("BSH created, #parent spheres = " + countParentBoundingSpheres(root) + ", height = " + height(root));
+        }
+    }
+
+    LinearBoundingSphereHierarchy linearHierarchy() {
+        LinearBoundingSphereHierarchy hierarchy = linearHierarchy;
+        if (hierarchy == null) {
+            synchronized (this) {
+                if (linearHierarchy == null) {
+                    linearHierarchy = new LinearBoundingSphereHierarchy(root);
+                }
+                hierarchy = linearHierarchy;
+            }
+        }
+        return hierarchy;
+    }
+
+    public void addObstacle(SphericalObstacle obstacle) {
+        BoundingSphere leaf = BoundingSphere.of(obstacle);
+        if (leaves.put(obstacle, leaf) != null) {
+            throw new IllegalArgumentException("Obstacle added twice");
+        }
+        insertLeaf(leaf);
+        afterUpdate(true);
+    }
+
+    public void removeObstacle(SphericalObstacle obstacle) {
+        BoundingSphere leaf = leaves.remove(obstacle);
+        if (leaf == null) {
+            throw new IllegalArgumentException("Obstacle not present");
+        }
+        removeLeaf(leaf);
+        afterUpdate(true);
+    }
+
+    // Moves obstacle's center (shared with its leaf) and updates the hierarchy
+    public void moveObstacle(SphericalObstacle obstacle, Vec3 newCenter) {
+        BoundingSphere leaf = leaves.get(obstacle);
+        if (leaf == null) {
+            throw new IllegalArgumentException("Obstacle not present");
+        }
+        obstacle.center.set(newCenter);
+        BoundingSphere parentSphere = leaf.parentSphere;
+        if (parentSphere != null && doesOneBoundAnother(parentSphere, leaf)) {
+            // Still inside its parent, only tighten the ancestors
+            refitUpwards(parentSphere);
+            afterUpdate(false);
+        } else {
+            // Moved out of its parent, reinsert so that it lands next to its new neighbours
+            removeLeaf(leaf);
+            insertLeaf(leaf);
+            afterUpdate(true);
+        }
+    }
+
+    private void afterUpdate(boolean isStructural) {
+        linearHierarchy = null;
+        obstaclesChanged();
+        if (isStructural) {
+            numUpdatesSinceBuild++;
+        }
+        if (numUpdatesSinceBuild > REBUILD_FRACTION * leaves.size()) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        numUpdatesSinceBuild = 0;
+        if (leaves.size() == 0) {
+            root = null;
+            return;
+        }
+        BoundingSphere[] boundingSpheres = leaves.values().toArray(new BoundingSphere[0]);
+        for (BoundingSphere leaf : boundingSpheres) {
+            leaf.parentSphere = null;
+        }
+        root = buildTopDown(boundingSpheres, 0, boundingSpheres.length);
+    }
+
+    private void insertLeaf(BoundingSphere leaf) {
+        if (root == null) {
+            root = leaf;
+            return;
         }
+        // Descend into the child that would need the smallest sphere to also bound the leaf
+        BoundingSphere sibling = root;
+        Vec3 center = Vec3.zero();
+        while (!sibling.isLeaf()) {
+            BoundingSphere best = null;
+            float bestRadius = Float.MAX_VALUE;
+            for (BoundingSphere child : sibling.children) {
+                float radius = smallestBoundingRadius(center.set(child.center), child.radius, leaf.center, leaf.radius);
+                if (radius < bestRadius) {
+                    best = child;
+                    bestRadius = radius;
+                }
+            }
+            sibling = best;
+        }
+        // Pair the leaf with the sibling found under a new parent bounding sphere
+        BoundingSphere parentSphere = new BoundingSphere(Vec3.zero(), 0, Vec3.of(random.random(1), random.random(1), random.random(1)));
+        BoundingSphere grandParentSphere = sibling.parentSphere;
+        if (grandParentSphere == null) {
+            root = parentSphere;
+        } else {
+            grandParentSphere.replaceChild(sibling, parentSphere);
+        }
+        parentSphere.addChild(sibling);
+        parentSphere.addChild(leaf);
+        refitUpwards(parentSphere);
+    }
+
+    private void removeLeaf(BoundingSphere leaf) {
+        BoundingSphere parentSphere = leaf.parentSphere;
+        if (parentSphere == null) {
+            root = null;
+            return;
+        }
+        parentSphere.children.remove(leaf);
+        leaf.parentSphere = null;
+        if (parentSphere.children.size() > 1) {
+            refitUpwards(parentSphere);
+            return;
+        }
+        // Parent with a single child is redundant, replace it by the child
+        BoundingSphere onlyChild = parentSphere.children.remove(0);
+        BoundingSphere grandParentSphere = parentSphere.parentSphere;
+        if (grandParentSphere == null) {
+            root = onlyChild;
+            onlyChild.parentSphere = null;
+        } else {
+            grandParentSphere.replaceChild(parentSphere, onlyChild);
+            refitUpwards(grandParentSphere);
+        }
+    }
+
+    // Recomputes bounds of this sphere and all its ancestors from their children
+    private void refitUpwards(BoundingSphere sphere) {
+        while (sphere != null) {
+            BoundingSphere first = sphere.children.get(0);
+            sphere.center.set(first.center);
+            float radius = first.radius;
+            for (int i = 1; i < sphere.children.size(); i++) {
+                BoundingSphere child = sphere.children.get(i);
+                radius = smallestBoundingRadius(sphere.center, radius, child.center, child.radius);
+            }
+            sphere.radius = radius;
+            sphere = sphere.parentSphere;
+        }
+    }
+
+    // Moves center1 to the center of the smallest sphere bounding both spheres and returns its radius
+    private static float smallestBoundingRadius(Vec3 center1, float radius1, Vec3 center2, float radius2) {
+        Vec3 o2_o1 = center2.minus(center1);
+        float distance = o2_o1.norm();
+        if (distance + radius2 <= radius1) {
+            return radius1;
+        }
+        if (distance + radius1 <= radius2) {
+            center1.set(center2);
+            return radius2;
+        }
+        float radius = (distance + radius1 + radius2) / 2;
+        center1.plusInPlace(o2_o1.scaleInPlace((radius - radius1) / distance));
+        return radius;
+    }
 
+    private BoundingSphere buildGreedy(List<BoundingSphere> boundingSpheres) {
         // Throw exception if a sphere is already bounded in another
         for (int i = 0; i < boundingSpheres.size() - 1; i++) {
             for (int j = i + 1; j < boundingSpheres.size(); j++) {
@@ -53,7 +237,6 @@ public class BSHConfigurationSpace extends ConfigurationSpace {
             }
         }
 
-        int numParentBoundingSpheres = 0;
         int biggestGroupSize = 0;
         // Create bounding spheres tree data structure
         while (boundingSpheres.size() > 1) {
@@ -84,22 +267,12 @@ public class BSHConfigurationSpace extends ConfigurationSpace {
                 }
             }
 
-            // Find the smallest sphere bounding the above two spheres
+            // Create the smallest parent bounding sphere bounding the above two spheres, add children to parent, remove children from list
             BoundingSphere child1 = boundingSpheres.get(x);
             BoundingSphere child2 = boundingSpheres.get(y);
-            Vec3 o2_o1_dir = child2.center.minus(child1.center).normalizeInPlace();
-            Vec3 e1 = child1.center.plus(o2_o1_dir.scale(-child1.radius));
-            Vec3 e2 = child2.center.plus(o2_o1_dir.scale(child2.radius));
-            Vec3 parentCenter = e1.plus(e2).scale(0.5f);
-            float parentRadius = e1.minus(parentCenter).norm();
-
-            // Create a parent bounding sphere, add children to parent, remove children from list
-            BoundingSphere parentSphere = new BoundingSphere(
-                    parentCenter,
-                    parentRadius,
-                    Vec3.of(parent.random(1), parent.random(1), parent.random(1)));
-            parentSphere.children.add(child1);
-            parentSphere.children.add(child2);
+            BoundingSphere parentSphere = smallestBoundingSphere(child1, child2);
+            parentSphere.addChild(child1);
+            parentSphere.addChild(child2);
             boundingSpheres.remove(y);
             boundingSpheres.remove(x);
 
@@ -110,7 +283,7 @@ public class BSHConfigurationSpace extends ConfigurationSpace {
             for (int i = numBoundingSpheres - 1; i >= 0; i--) {
                 BoundingSphere sphere = boundingSpheres.get(i);
                 if (doesOneBoundAnother(parentSphere, sphere)) {
-                    parentSphere.children.add(sphere);
+                    parentSphere.addChild(sphere);
                     boundingSpheres.remove(i);
                 }
             }
@@ -120,14 +293,171 @@ public class BSHConfigurationSpace extends ConfigurationSpace {
             if (parentSphere.children.size() > biggestGroupSize) {
                 biggestGroupSize = parentSphere.children.size();
             }
-            numParentBoundingSpheres++;
+        }
+
+        System.out.println("BSH greedy creation, biggest group = " + biggestGroupSize);
+        return boundingSpheres.get(0);
+    }
+
+    private BoundingSphere buildTopDown(BoundingSphere[] leaves, int from, int to) {
+        BoundingSphere sphere = PARALLEL_CONSTRUCTION && to - from >= PARALLEL_CONSTRUCTION_THRESHOLD
+                ? CONSTRUCTION_POOL.invoke(new BuildTask(leaves, from, to))
+                : buildSubtree(leaves, from, to);
+        // Colors are drawn afterwards in the order the sequential build creates spheres, so both builds are identical
+        assignColors(sphere);
+        return sphere;
+    }
+
+    private static BoundingSphere buildSubtree(BoundingSphere[] leaves, int from, int to) {
+        if (to - from == 1) {
+            return leaves[from];
+        }
+        Vec3 min = Vec3.of(Float.MAX_VALUE);
+        Vec3 max = Vec3.of(-Float.MAX_VALUE);
+        int mid = split(leaves, from, to, min, max);
+        BoundingSphere child1 = buildSubtree(leaves, from, mid);
+        BoundingSphere child2 = buildSubtree(leaves, mid, to);
+        return parentOf(leaves, from, to, min, max, child1, child2);
+    }
+
+    // Builds the two halves of large subtrees on different worker threads, each half owns its part of leaves
+    private static class BuildTask extends RecursiveTask<BoundingSphere> {
+        private static final long serialVersionUID = 1L;
+        final BoundingSphere[] leaves;
+        final int from;
+        final int to;
+
+        BuildTask(BoundingSphere[] leaves, int from, int to) {
+            this.leaves = leaves;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected BoundingSphere compute() {
+            if (to - from < PARALLEL_CONSTRUCTION_THRESHOLD) {
+                return buildSubtree(leaves, from, to);
+            }
+            Vec3 min = Vec3.of(Float.MAX_VALUE);
+            Vec3 max = Vec3.of(-Float.MAX_VALUE);
+            int mid = split(leaves, from, to, min, max);
+            BuildTask task1 = new BuildTask(leaves, from, mid);
+            task1.fork();
+            BoundingSphere child2 = new BuildTask(leaves, mid, to).compute();
+            BoundingSphere child1 = task1.join();
+            return parentOf(leaves, from, to, min, max, child1, child2);
+        }
+    }
+
+    // Splits leaves[from, to) at the median along the longest axis of the centers' bounding box [min, max]
+    // Returns index of the split, min and max are filled in
+    private static int split(BoundingSphere[] leaves, int from, int to, Vec3 min, Vec3 max) {
+        for (int i = from; i < to; i++) {
+            Vec3 c = leaves[i].center;
+            min.set(Math.min(min.x, c.x), Math.min(min.y, c.y), Math.min(min.z, c.z));
+            max.set(Math.max(max.x, c.x), Math.max(max.y, c.y), Math.max(max.z, c.z));
+        }
+        Vec3 extent = max.minus(min);
+        int axis = extent.x >= extent.y && extent.x >= extent.z ? 0 : (extent.y >= extent.z ? 1 : 2);
+        int mid = (from + to) / 2;
+        selectMedian(leaves, from, to, mid, axis);
+        return mid;
+    }
+
+    private static BoundingSphere parentOf(BoundingSphere[] leaves, int from, int to, Vec3 min, Vec3 max,
+                                           BoundingSphere child1, BoundingSphere child2) {
+        Vec3 parentCenter = Vec3.of(child1.center);
+        float parentRadius = smallestBoundingRadius(parentCenter, child1.radius, child2.center, child2.radius);
+
+        // Sphere around the box center bounding all the leaves is often tighter than the one bounding both children
+        Vec3 boxCenter = min.plus(max).scaleInPlace(0.5f);
+        float boxRadius = 0;
+        for (int i = from; i < to; i++) {
+            // Scalar math, this loop runs over every leaf at every level
+            Vec3 c = leaves[i].center;
+            float dx = c.x - boxCenter.x;
+            float dy = c.y - boxCenter.y;
+            float dz = c.z - boxCenter.z;
+            boxRadius = Math.max(boxRadius, (float) Math.sqrt(dx * dx + dy * dy + dz * dz) + leaves[i].radius);
+        }
+        BoundingSphere parentSphere = boxRadius < parentRadius
+                ? new BoundingSphere(boxCenter, boxRadius, Vec3.zero())
+                : new BoundingSphere(parentCenter, parentRadius, Vec3.zero());
+
+        parentSphere.addChild(child1);
+        parentSphere.addChild(child2);
+        return parentSphere;
+    }
+
+    private void assignColors(BoundingSphere sphere) {
+        if (sphere.isLeaf()) {
+            return;
+        }
+        for (BoundingSphere child : sphere.children) {
+            assignColors(child);
+        }
+        sphere.color.set(random.random(1), random.random(1), random.random(1));
+    }
 
-            PApplet.print("BSH creation, " + "biggest group = " + biggestGroupSize + ", # left " + boundingSpheres.size() + "\r");
+    private static float coordinate(BoundingSphere sphere, int axis) {
+        return axis == 0 ? sphere.center.x : (axis == 1 ? sphere.center.y : sphere.center.z);
+    }
+
+    // Quickselect, partially orders leaves[from, to) such that leaves[k] is at its sorted position along axis
+    private static void selectMedian(BoundingSphere[] leaves, int from, int to, int k, int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            float pivot = coordinate(leaves[(lo + hi) >>> 1], axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(leaves[i], axis) < pivot) {
+                    i++;
+                }
+                while (coordinate(leaves[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    BoundingSphere tmp = leaves[i];
+                    leaves[i] = leaves[j];
+                    leaves[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
         }
+    }
 
-        this.root = boundingSpheres.get(0);
-        PApplet.println();
-        PApplet.println("BSH created, #parent spheres = " + numParentBoundingSpheres);
+    private BoundingSphere smallestBoundingSphere(BoundingSphere child1, BoundingSphere child2) {
+        Vec3 parentCenter = Vec3.of(child1.center);
+        float parentRadius = smallestBoundingRadius(parentCenter, child1.radius, child2.center, child2.radius);
+        return new BoundingSphere(parentCenter, parentRadius, Vec3.of(random.random(1), random.random(1), random.random(1)));
+    }
+
+    private static int countParentBoundingSpheres(BoundingSphere sphere) {
+        if (sphere.children.size() == 0) {
+            return 0;
+        }
+        int count = 1;
+        for (BoundingSphere child : sphere.children) {
+            count += countParentBoundingSpheres(child);
+        }
+        return count;
+    }
+
+    private static int height(BoundingSphere sphere) {
+        int height = 0;
+        for (BoundingSphere child : sphere.children) {
+            height = Math.max(height, height(child) + 1);
+        }
+        return height;
     }
 
     private boolean doesOneBoundAnother(BoundingSphere b1, BoundingSphere b2) {
@@ -148,75 +478,32 @@ public class BSHConfigurationSpace extends ConfigurationSpace {
     }
 
     public void draw() {
-        if (DRAW_BOUNDING_SPHERES) {
+        if (DRAW_BOUNDING_SPHERES && root != null) {
             drawRecursive(root);
         }
     }
 
-    private boolean doesVertexIntersectThisSphere(final Vec3 p, final BoundingSphere node) {
-        return p.minus(node.center).norm() <= node.radius + sphericalAgentDescription.radius;
-    }
+    // Queries for an agent of any radius, the hierarchy does not depend on the radius given at construction
+    // Not instrumented, see SharedBSHConfigurationSpace for an instrumented configuration space per radius
 
-    private boolean doesEdgeIntersectThisSphere(final Vec3 p1, final Vec3 p2, final BoundingSphere node) {
-        Vec3 pb_pa = p2.minus(p1);
-        Vec3 pa_pc = p1.minus(node.center);
-        float r = node.radius + sphericalAgentDescription.radius;
-        float a = pb_pa.dot(pb_pa);
-        float c = pa_pc.dot(pa_pc) - r * r;
-        float b = 2 * pb_pa.dot(pa_pc);
-        float discriminant = b * b - 4 * a * c;
-        if (discriminant >= 0) {
-            float t1 = (float) ((-b + Math.sqrt(discriminant)) / (2 * a));
-            float t2 = (float) ((-b - Math.sqrt(discriminant)) / (2 * a));
-            // Intersection with line segment only possible iff at least one of the solutions lies in [0, 1]
-            return (0 <= t1 && t1 <= 1) || (0 <= t2 && t2 <= 1);
-        }
-        return false;
+    public boolean doesVertexIntersectSomeObstacle(final Vec3 p, final float agentRadius) {
+        return linearHierarchy().doesVertexIntersectSomeLeaf(p.x, p.y, p.z, agentRadius, null);
     }
 
-    private boolean doesVertexIntersectSomeObstacleUnderThisBoundingSphere(final Vec3 p, final BoundingSphere node) {
-        if (doesVertexIntersectThisSphere(p, node)) {
-            // Intersects with this bounding sphere
-            if (node.children.size() == 0) {
-                // Leaf bounding sphere node i.e. actual obstacle
-                return true;
-            }
-
-            // Not an actual obstacle => check for intersection with one of the children
-            for (BoundingSphere child : node.children) {
-                if (doesVertexIntersectSomeObstacleUnderThisBoundingSphere(p, child)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public boolean doesEdgeIntersectSomeObstacle(final Vec3 p1, final Vec3 p2, final float agentRadius) {
+        return linearHierarchy().doesEdgeIntersectSomeLeaf(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, agentRadius, null);
     }
 
-    public boolean doesVertexIntersectSomeObstacle(final Vec3 p) {
-        return doesVertexIntersectSomeObstacleUnderThisBoundingSphere(p, root);
+    protected boolean vertexIntersectsSomeObstacle(final Vec3 p) {
+        return linearHierarchy().doesVertexIntersectSomeLeaf(p.x, p.y, p.z, sphericalAgentDescription.radius, stats);
     }
 
-    private boolean doesEdgeIntersectSomeObstacleUnderThisBoundingSphere(final Vec3 p1, final Vec3 p2, final BoundingSphere node) {
-        if (doesVertexIntersectThisSphere(p1, node)
-                || doesVertexIntersectThisSphere(p2, node)
-                || doesEdgeIntersectThisSphere(p1, p2, node)) {
-            // Intersects with this bounding sphere
-            if (node.children.size() == 0) {
-                // Leaf bounding sphere node i.e. actual obstacle
-                return true;
-            }
-
-            // Not an actual obstacle => check for intersection with one of the children
-            for (BoundingSphere child : node.children) {
-                if (doesEdgeIntersectSomeObstacleUnderThisBoundingSphere(p1, p2, child)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    protected boolean edgeIntersectsSomeObstacle(final Vec3 p1, final Vec3 p2) {
+        return linearHierarchy().doesEdgeIntersectSomeLeaf(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, sphericalAgentDescription.radius, stats);
     }
 
-    public boolean doesEdgeIntersectSomeObstacle(final Vec3 p1, final Vec3 p2) {
-        return doesEdgeIntersectSomeObstacleUnderThisBoundingSphere(p1, p2, root);
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        LinearBoundingSphereHierarchy hierarchy = linearHierarchy();
+        checkEdgeChunks(count, invalidOut, (from, to, invalidWords) -> hierarchy.checkEdges(starts, ends, from, to, invalidWords, sphericalAgentDescription.radius, stats));
     }
 }
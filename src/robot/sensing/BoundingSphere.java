@@ -0,0 +1,45 @@
+package robot.sensing;
+
+import fixed.SphericalObstacle;
+import math.Vec3;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class BoundingSphere {
+    final List<BoundingSphere> children = new ArrayList<>();
+    final Vec3 center;
+    float radius;
+    final Vec3 color;
+    // null for root
+    BoundingSphere parentSphere = null;
+    // Leaf bounding spheres are actual obstacles and share center with them
+    SphericalObstacle obstacle = null;
+
+    public BoundingSphere(Vec3 center, float radius, Vec3 color) {
+        this.center = center;
+        this.color = color;
+        this.radius = radius;
+    }
+
+    static BoundingSphere of(SphericalObstacle obstacle) {
+        BoundingSphere leaf = new BoundingSphere(obstacle.center, obstacle.radius, Vec3.of(1));
+        leaf.obstacle = obstacle;
+        return leaf;
+    }
+
+    void addChild(BoundingSphere child) {
+        children.add(child);
+        child.parentSphere = this;
+    }
+
+    void replaceChild(BoundingSphere oldChild, BoundingSphere newChild) {
+        children.set(children.indexOf(oldChild), newChild);
+        newChild.parentSphere = this;
+        oldChild.parentSphere = null;
+    }
+
+    boolean isLeaf() {
+        return children.size() == 0;
+    }
+}
@@ -2,10 +2,126 @@ package robot.sensing;
 
 import math.Vec3;
 
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
 public abstract class ConfigurationSpace {
-    public abstract boolean doesVertexIntersectSomeObstacle(Vec3 p);
+    public static boolean PARALLEL_EDGE_CHECKS = true;
+    // Edges per parallel chunk of a batch, rounded up to a multiple of 64 so chunks write disjoint words
+    public static int EDGE_CHECK_CHUNK_SIZE = 4096;
+    private static final AtomicLong nextStamp = new AtomicLong(1);
+
+    // Unique across configuration spaces, changes whenever obstacles change so cached results are not reused
+    private volatile long stamp = nextStamp.getAndIncrement();
+
+    public long stamp() {
+        return stamp;
+    }
+
+    void obstaclesChanged() {
+        stamp = nextStamp.getAndIncrement();
+    }
+
+    // Counters are only updated while instrumentation is enabled, null otherwise
+    QueryStats stats = null;
+
+    public QueryStats enableInstrumentation() {
+        if (stats == null) {
+            stats = new QueryStats();
+        }
+        return stats;
+    }
+
+    public void disableInstrumentation() {
+        stats = null;
+    }
+
+    // null when instrumentation is disabled
+    public QueryStats stats() {
+        return stats;
+    }
+
+    public boolean doesVertexIntersectSomeObstacle(Vec3 p) {
+        QueryStats stats = this.stats;
+        if (stats == null) {
+            return vertexIntersectsSomeObstacle(p);
+        }
+        long start = System.nanoTime();
+        boolean isHit = vertexIntersectsSomeObstacle(p);
+        stats.recordVertexQuery(isHit, System.nanoTime() - start);
+        return isHit;
+    }
+
+    public boolean doesEdgeIntersectSomeObstacle(Vec3 p1, Vec3 p2) {
+        QueryStats stats = this.stats;
+        if (stats == null) {
+            return edgeIntersectsSomeObstacle(p1, p2);
+        }
+        long start = System.nanoTime();
+        boolean isHit = edgeIntersectsSomeObstacle(p1, p2);
+        stats.recordEdgeQuery(isHit, System.nanoTime() - start);
+        return isHit;
+    }
+
+    // Sets bit i of invalidOut iff the edge from starts[3i..3i+2] to ends[3i..3i+2] intersects some obstacle
+    public void checkEdges(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        QueryStats stats = this.stats;
+        if (stats == null) {
+            edgesIntersectSomeObstacle(starts, ends, count, invalidOut);
+            return;
+        }
+        int numHitsBefore = invalidOut.get(0, count).cardinality();
+        long start = System.nanoTime();
+        edgesIntersectSomeObstacle(starts, ends, count, invalidOut);
+        long nanos = System.nanoTime() - start;
+        stats.recordEdgeBatch(count, invalidOut.get(0, count).cardinality() - numHitsBefore, nanos);
+    }
+
+    // Queries implemented by each configuration space, reporting nodes visited and leaf tests through stats if not null
+
+    protected abstract boolean vertexIntersectsSomeObstacle(Vec3 p);
+
+    protected abstract boolean edgeIntersectsSomeObstacle(Vec3 p1, Vec3 p2);
+
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        Vec3 p1 = Vec3.zero();
+        Vec3 p2 = Vec3.zero();
+        for (int i = 0; i < count; i++) {
+            p1.set(starts[3 * i], starts[3 * i + 1], starts[3 * i + 2]);
+            p2.set(ends[3 * i], ends[3 * i + 1], ends[3 * i + 2]);
+            if (edgeIntersectsSomeObstacle(p1, p2)) {
+                invalidOut.set(i);
+            }
+        }
+    }
+
+    // Reports traversal counters if instrumentation is enabled and passes isHit through
+    boolean traversed(boolean isHit, int numNodesVisited, int numLeafTests) {
+        QueryStats stats = this.stats;
+        if (stats != null) {
+            stats.recordTraversal(numNodesVisited, numLeafTests);
+        }
+        return isHit;
+    }
+
+    interface EdgeChunkChecker {
+        // Sets bit e of invalidWords for every edge e in [from, to) that intersects some obstacle
+        void check(int from, int to, long[] invalidWords);
+    }
 
-    public abstract boolean doesEdgeIntersectSomeObstacle(Vec3 p1, Vec3 p2);
+    // Runs checker over 64 aligned chunks of a batch, in parallel if enabled, checker must be thread safe
+    static void checkEdgeChunks(int count, BitSet invalidOut, EdgeChunkChecker checker) {
+        long[] invalidWords = new long[(count + 63) / 64];
+        int chunkSize = Math.max(64, (EDGE_CHECK_CHUNK_SIZE + 63) / 64 * 64);
+        int numChunks = (count + chunkSize - 1) / chunkSize;
+        IntStream chunks = IntStream.range(0, numChunks);
+        if (PARALLEL_EDGE_CHECKS && numChunks > 1) {
+            chunks = chunks.parallel();
+        }
+        chunks.forEach(c -> checker.check(c * chunkSize, Math.min(count, (c + 1) * chunkSize), invalidWords));
+        invalidOut.or(BitSet.valueOf(invalidWords));
+    }
 
     public abstract void draw();
 }
@@ -0,0 +1,227 @@
+package robot.sensing;
+
+import fixed.SphericalObstacle;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Signed distance to the nearest inflated obstacle sampled on a uniform grid of nodes, built once for static scenes
+// Vertex checks are one trilinear lookup, edge checks sphere trace along the edge stepping by the clearance
+// Trilinear interpolation is off by at most cellSize * sqrt(3) / 2, which is subtracted from every lookup,
+// so no collision is missed but configurations closer than that to an obstacle are reported as colliding
+// When all obstacle centers share the same x, like in the 2D demos, the field is stored for that plane only,
+// the planar distance is a lower bound on the distance from any x so lookups simply ignore x
+public class DistanceFieldConfigurationSpace extends ConfigurationSpace {
+    public static int MAX_NODES = 1 << 23;
+    // Edges still grazing an obstacle after this many steps are reported as colliding
+    public static int MAX_TRACE_STEPS = 1000;
+
+    final SphericalAgentDescription sphericalAgentDescription;
+    final boolean isPlanar;
+    // Grid, padded by band on every side so that points outside it are free
+    final float minX, minY, minZ;
+    final float maxX, maxY, maxZ;
+    final float cellSize;
+    final int numNodesX, numNodesY, numNodesZ;
+    // Distances are exact up to band, further nodes store band which is still a lower bound
+    final float band;
+    final float interpolationError;
+    // Distance at node (x, y, z) is distances[(x * numNodesY + y) * numNodesZ + z]
+    final float[] distances;
+
+    public DistanceFieldConfigurationSpace(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
+        this(sphericalAgentDescription, sphericalObstacles, smallestInflatedRadius(sphericalAgentDescription, sphericalObstacles) / 4);
+    }
+
+    public DistanceFieldConfigurationSpace(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles, float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size should be positive");
+        }
+        this.sphericalAgentDescription = sphericalAgentDescription;
+
+        boolean planar = true;
+        float largestRadius = 0;
+        float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE, loZ = Float.MAX_VALUE;
+        float hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE, hiZ = -Float.MAX_VALUE;
+        for (SphericalObstacle o : sphericalObstacles) {
+            float r = o.radius + sphericalAgentDescription.radius;
+            largestRadius = Math.max(largestRadius, r);
+            loX = Math.min(loX, o.center.x - r);
+            loY = Math.min(loY, o.center.y - r);
+            loZ = Math.min(loZ, o.center.z - r);
+            hiX = Math.max(hiX, o.center.x + r);
+            hiY = Math.max(hiY, o.center.y + r);
+            hiZ = Math.max(hiZ, o.center.z + r);
+            planar = planar && o.center.x == sphericalObstacles.get(0).center.x;
+        }
+        this.isPlanar = planar;
+        if (sphericalObstacles.isEmpty()) {
+            loX = loY = loZ = 0;
+            hiX = hiY = hiZ = 0;
+        } else if (isPlanar) {
+            // Two nodes along x holding the same values
+            loX = hiX = sphericalObstacles.get(0).center.x;
+        }
+
+        // Grow cells until the grid fits in memory budget, without obstacles the field is a few free nodes at the origin
+        float size = sphericalObstacles.isEmpty() ? 1 : cellSize;
+        float pad = Math.max(largestRadius, 2 * size);
+        while ((long) (isPlanar ? 2 : nodeCount(hiX - loX + 2 * pad, size)) * nodeCount(hiY - loY + 2 * pad, size) * nodeCount(hiZ - loZ + 2 * pad, size) > MAX_NODES) {
+            size *= 2;
+            pad = Math.max(largestRadius, 2 * size);
+        }
+        this.cellSize = size;
+        this.band = pad;
+        this.interpolationError = size * (float) Math.sqrt(3) / 2;
+        minX = isPlanar ? loX : loX - pad;
+        minY = loY - pad;
+        minZ = loZ - pad;
+        numNodesX = isPlanar ? 2 : nodeCount(hiX - loX + 2 * pad, size);
+        numNodesY = nodeCount(hiY - loY + 2 * pad, size);
+        numNodesZ = nodeCount(hiZ - loZ + 2 * pad, size);
+        maxX = minX + (numNodesX - 1) * size;
+        maxY = minY + (numNodesY - 1) * size;
+        maxZ = minZ + (numNodesZ - 1) * size;
+
+        // Rasterize each obstacle into the nodes within band of its surface
+        distances = new float[numNodesX * numNodesY * numNodesZ];
+        Arrays.fill(distances, band);
+        for (SphericalObstacle o : sphericalObstacles) {
+            float r = o.radius + sphericalAgentDescription.radius;
+            float reach = r + band;
+            int x0 = nodeFloor(o.center.x - reach, minX, numNodesX), x1 = nodeFloor(o.center.x + reach, minX, numNodesX) + 1;
+            int y0 = nodeFloor(o.center.y - reach, minY, numNodesY), y1 = nodeFloor(o.center.y + reach, minY, numNodesY) + 1;
+            int z0 = nodeFloor(o.center.z - reach, minZ, numNodesZ), z1 = nodeFloor(o.center.z + reach, minZ, numNodesZ) + 1;
+            for (int x = x0; x <= x1 && x < numNodesX; x++) {
+                float dx = isPlanar ? 0 : minX + x * size - o.center.x;
+                for (int y = y0; y <= y1 && y < numNodesY; y++) {
+                    float dy = minY + y * size - o.center.y;
+                    for (int z = z0; z <= z1 && z < numNodesZ; z++) {
+                        float dz = minZ + z * size - o.center.z;
+                        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz) - r;
+                        int node = (x * numNodesY + y) * numNodesZ + z;
+                        if (distance < distances[node]) {
+                            distances[node] = distance;
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println("Distance field created, " + numNodesX + "x" + numNodesY + "x" + numNodesZ
+                + " nodes " + this.cellSize + " apart, band = " + band);
+    }
+
+    // Float.MAX_VALUE without obstacles, which the empty field does not use
+    private static float smallestInflatedRadius(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
+        float smallest = Float.MAX_VALUE;
+        for (SphericalObstacle o : sphericalObstacles) {
+            smallest = Math.min(smallest, o.radius + sphericalAgentDescription.radius);
+        }
+        return smallest;
+    }
+
+    private static int nodeCount(float extent, float size) {
+        return Math.max(2, (int) Math.ceil(extent / size) + 1);
+    }
+
+    // Index of the node at or before coordinate, clamped so that it starts a cell
+    private int nodeFloor(float coordinate, float min, int numNodes) {
+        int i = (int) Math.floor((coordinate - min) / cellSize);
+        return i < 0 ? 0 : (i > numNodes - 2 ? numNodes - 2 : i);
+    }
+
+    private boolean isOutsideGrid(float x, float y, float z) {
+        return !isPlanar && (x < minX || x > maxX) || y < minY || y > maxY || z < minZ || z > maxZ;
+    }
+
+    // Trilinear interpolation of the stored distances, point must be inside the grid
+    private float interpolatedDistance(float x, float y, float z) {
+        if (isPlanar) {
+            x = minX;
+        }
+        int ix = nodeFloor(x, minX, numNodesX);
+        int iy = nodeFloor(y, minY, numNodesY);
+        int iz = nodeFloor(z, minZ, numNodesZ);
+        float fx = (x - minX) / cellSize - ix;
+        float fy = (y - minY) / cellSize - iy;
+        float fz = (z - minZ) / cellSize - iz;
+        int n000 = (ix * numNodesY + iy) * numNodesZ + iz;
+        int n100 = n000 + numNodesY * numNodesZ;
+        float d00 = distances[n000] + fz * (distances[n000 + 1] - distances[n000]);
+        float d01 = distances[n000 + numNodesZ] + fz * (distances[n000 + numNodesZ + 1] - distances[n000 + numNodesZ]);
+        float d10 = distances[n100] + fz * (distances[n100 + 1] - distances[n100]);
+        float d11 = distances[n100 + numNodesZ] + fz * (distances[n100 + numNodesZ + 1] - distances[n100 + numNodesZ]);
+        float d0 = d00 + fy * (d01 - d00);
+        float d1 = d10 + fy * (d11 - d10);
+        return d0 + fx * (d1 - d0);
+    }
+
+    // Lower bound on the distance from point to the nearest inflated obstacle
+    private float clearance(float x, float y, float z) {
+        return interpolatedDistance(x, y, z) - interpolationError;
+    }
+
+    protected boolean vertexIntersectsSomeObstacle(Vec3 p) {
+        if (isOutsideGrid(p.x, p.y, p.z)) {
+            return traversed(false, 0, 0);
+        }
+        return traversed(clearance(p.x, p.y, p.z) <= 0, 1, 0);
+    }
+
+    protected boolean edgeIntersectsSomeObstacle(Vec3 p1, Vec3 p2) {
+        return doesEdgeIntersectSomeObstacle(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z);
+    }
+
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        checkEdgeChunks(count, invalidOut, (from, to, invalidWords) -> {
+            for (int e = from; e < to; e++) {
+                if (doesEdgeIntersectSomeObstacle(starts[3 * e], starts[3 * e + 1], starts[3 * e + 2],
+                        ends[3 * e], ends[3 * e + 1], ends[3 * e + 2])) {
+                    invalidWords[e >>> 6] |= 1L << e;
+                }
+            }
+        });
+    }
+
+    private boolean doesEdgeIntersectSomeObstacle(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float dz = z2 - z1;
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (isPlanar) {
+            // Trace the projection onto the plane, but step by the length of the actual edge
+            x1 = x2 = minX;
+            dx = 0;
+        }
+
+        // Only the part of the segment inside the grid can hit an obstacle
+        float tEnter = Math.max(0, Math.max(Intersection.slabEnter(x1, dx, minX, maxX),
+                Math.max(Intersection.slabEnter(y1, dy, minY, maxY), Intersection.slabEnter(z1, dz, minZ, maxZ))));
+        float tExit = Math.min(1, Math.min(Intersection.slabExit(x1, dx, minX, maxX),
+                Math.min(Intersection.slabExit(y1, dy, minY, maxY), Intersection.slabExit(z1, dz, minZ, maxZ))));
+        if (tEnter > tExit) {
+            return traversed(false, 0, 0);
+        }
+
+        // Sphere tracing, the clearance at a point is free to step over, each lookup counts as a visited node
+        float t = tEnter;
+        for (int step = 0; step < MAX_TRACE_STEPS; step++) {
+            float clearance = clearance(x1 + t * dx, y1 + t * dy, z1 + t * dz);
+            if (clearance <= 0) {
+                return traversed(true, step + 1, 0);
+            }
+            if (t >= tExit || length == 0) {
+                return traversed(false, step + 1, 0);
+            }
+            t = Math.min(tExit, t + clearance / length);
+        }
+        return traversed(true, MAX_TRACE_STEPS, 0);
+    }
+
+    public void draw() {
+    }
+}
@@ -0,0 +1,54 @@
+package robot.sensing;
+
+import math.Vec3;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Growable buffer of edges in the layout expected by ConfigurationSpace.checkEdges
+public class EdgeBatch {
+    float[] starts = new float[3 * 64];
+    float[] ends = new float[3 * 64];
+    int size = 0;
+
+    // Returns index of the edge in the batch
+    public int add(Vec3 p1, Vec3 p2) {
+        if (3 * size == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * starts.length);
+            ends = Arrays.copyOf(ends, 2 * ends.length);
+        }
+        starts[3 * size] = p1.x;
+        starts[3 * size + 1] = p1.y;
+        starts[3 * size + 2] = p1.z;
+        ends[3 * size] = p2.x;
+        ends[3 * size + 1] = p2.y;
+        ends[3 * size + 2] = p2.z;
+        return size++;
+    }
+
+    // Edge between points i and j of positions, where point i is at (positions[3i], positions[3i + 1], positions[3i + 2])
+    public int add(float[] positions, int i, int j) {
+        if (3 * size == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * starts.length);
+            ends = Arrays.copyOf(ends, 2 * ends.length);
+        }
+        System.arraycopy(positions, 3 * i, starts, 3 * size, 3);
+        System.arraycopy(positions, 3 * j, ends, 3 * size, 3);
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Bit i is set iff edge i intersects some obstacle
+    public BitSet check(ConfigurationSpace configurationSpace) {
+        BitSet invalid = new BitSet(size);
+        configurationSpace.checkEdges(starts, ends, size, invalid);
+        return invalid;
+    }
+}
@@ -0,0 +1,74 @@
+package robot.sensing;
+
+// Up to 64 consecutive edges of a batch tested together against one sphere at a time
+// Bit b of a mask refers to edge bundleStart + b
+class EdgeBundle {
+    final float[] startX = new float[64];
+    final float[] startY = new float[64];
+    final float[] startZ = new float[64];
+    final float[] deltaX = new float[64];
+    final float[] deltaY = new float[64];
+    final float[] deltaZ = new float[64];
+    final float[] lengthSquared = new float[64];
+    // Sphere around all edges of the bundle, lets a sphere far from the whole bundle be rejected with one test
+    float centerX, centerY, centerZ, radius;
+    long all;
+
+    // Loads edges [bundleStart, bundleStart + bundleSize) laid out as in ConfigurationSpace.checkEdges
+    void load(float[] starts, float[] ends, int bundleStart, int bundleSize) {
+        float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE, loZ = Float.MAX_VALUE;
+        float hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE, hiZ = -Float.MAX_VALUE;
+        for (int b = 0; b < bundleSize; b++) {
+            int e = 3 * (bundleStart + b);
+            startX[b] = starts[e];
+            startY[b] = starts[e + 1];
+            startZ[b] = starts[e + 2];
+            deltaX[b] = ends[e] - starts[e];
+            deltaY[b] = ends[e + 1] - starts[e + 1];
+            deltaZ[b] = ends[e + 2] - starts[e + 2];
+            lengthSquared[b] = deltaX[b] * deltaX[b] + deltaY[b] * deltaY[b] + deltaZ[b] * deltaZ[b];
+            loX = Math.min(loX, Math.min(starts[e], ends[e]));
+            loY = Math.min(loY, Math.min(starts[e + 1], ends[e + 1]));
+            loZ = Math.min(loZ, Math.min(starts[e + 2], ends[e + 2]));
+            hiX = Math.max(hiX, Math.max(starts[e], ends[e]));
+            hiY = Math.max(hiY, Math.max(starts[e + 1], ends[e + 1]));
+            hiZ = Math.max(hiZ, Math.max(starts[e + 2], ends[e + 2]));
+        }
+        centerX = (loX + hiX) / 2;
+        centerY = (loY + hiY) / 2;
+        centerZ = (loZ + hiZ) / 2;
+        float halfX = (hiX - loX) / 2, halfY = (hiY - loY) / 2, halfZ = (hiZ - loZ) / 2;
+        // Slightly larger than the box so that rounding never rejects a sphere that some edge hits
+        radius = (float) Math.sqrt(halfX * halfX + halfY * halfY + halfZ * halfZ) * 1.001f + 1e-3f;
+        all = bundleSize == 64 ? -1L : (1L << bundleSize) - 1;
+    }
+
+    // Whether every edge of the bundle lies inside the sphere
+    boolean isInsideSphere(float cx, float cy, float cz, float r) {
+        float ox = cx - centerX, oy = cy - centerY, oz = cz - centerZ;
+        float slack = r - radius;
+        return slack >= 0 && ox * ox + oy * oy + oz * oz <= slack * slack;
+    }
+
+    // Returns the edges in mask that intersect the sphere, same result as Intersection.doesSegmentIntersectSphere
+    long intersectSphere(long mask, float cx, float cy, float cz, float r) {
+        float ox = cx - centerX, oy = cy - centerY, oz = cz - centerZ;
+        float reach = r + radius;
+        if (ox * ox + oy * oy + oz * oz > reach * reach) {
+            return 0;
+        }
+        long hit = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            int b = Long.numberOfTrailingZeros(mask);
+            float t = 0;
+            if (lengthSquared[b] > 0) {
+                t = ((cx - startX[b]) * deltaX[b] + (cy - startY[b]) * deltaY[b] + (cz - startZ[b]) * deltaZ[b]) / lengthSquared[b];
+                t = t < 0 ? 0 : (t > 1 ? 1 : t);
+            }
+            if (Intersection.doesPointIntersectSphere(startX[b] + t * deltaX[b], startY[b] + t * deltaY[b], startZ[b] + t * deltaZ[b], cx, cy, cz, r)) {
+                hit |= 1L << b;
+            }
+        }
+        return hit;
+    }
+}
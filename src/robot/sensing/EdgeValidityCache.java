@@ -0,0 +1,82 @@
+package robot.sensing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded set associative cache of edge check results keyed by vertex pair and configuration space stamp
+public class EdgeValidityCache {
+    public static final int UNKNOWN = 0;
+    public static final int VALID = 1;
+    public static final int INVALID = 2;
+    static final int WAYS = 4;
+
+    final int setBits;
+    // Entries of set s are at s * WAYS ... s * WAYS + WAYS - 1, most recently inserted first
+    final long[] pairs;
+    // stamp << 1 | isValid, 0 for an empty entry
+    final long[] results;
+    final LongAdder numHits = new LongAdder();
+    final LongAdder numMisses = new LongAdder();
+
+    public EdgeValidityCache(int capacity) {
+        int numSets = 1;
+        int bits = 0;
+        while (numSets * WAYS < capacity) {
+            numSets *= 2;
+            bits++;
+        }
+        this.setBits = bits;
+        this.pairs = new long[numSets * WAYS];
+        this.results = new long[numSets * WAYS];
+    }
+
+    private static long pair(int i, int j) {
+        return i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+    }
+
+    private int firstEntry(long pair) {
+        if (setBits == 0) {
+            return 0;
+        }
+        return (int) ((pair * 0x9E3779B97F4A7C15L) >>> (64 - setBits)) * WAYS;
+    }
+
+    // Result of edge between vertices i and j checked in a configuration space with the given stamp
+    public int get(int i, int j, long stamp) {
+        long pair = pair(i, j);
+        int first = firstEntry(pair);
+        for (int k = first; k < first + WAYS; k++) {
+            if (pairs[k] == pair && results[k] >>> 1 == stamp) {
+                numHits.increment();
+                return (results[k] & 1) == 1 ? VALID : INVALID;
+            }
+        }
+        numMisses.increment();
+        return UNKNOWN;
+    }
+
+    public void put(int i, int j, long stamp, boolean isValid) {
+        long pair = pair(i, j);
+        int first = firstEntry(pair);
+        // Shift the set down by one, dropping its oldest entry
+        System.arraycopy(pairs, first, pairs, first + 1, WAYS - 1);
+        System.arraycopy(results, first, results, first + 1, WAYS - 1);
+        pairs[first] = pair;
+        results[first] = stamp << 1 | (isValid ? 1 : 0);
+    }
+
+    public void clear() {
+        Arrays.fill(pairs, 0);
+        Arrays.fill(results, 0);
+        numHits.reset();
+        numMisses.reset();
+    }
+
+    public long numHits() {
+        return numHits.sum();
+    }
+
+    public long numMisses() {
+        return numMisses.sum();
+    }
+}
@@ -0,0 +1,279 @@
+package robot.sensing;
+
+import fixed.SphericalObstacle;
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class GridConfigurationSpace extends ConfigurationSpace {
+    public static int MAX_CELLS = 1 << 22;
+
+    final SphericalAgentDescription sphericalAgentDescription;
+    // Obstacles inflated by agent radius
+    final float[] centerX;
+    final float[] centerY;
+    final float[] centerZ;
+    final float[] radius;
+    // Grid
+    final float minX, minY, minZ;
+    final float maxX, maxY, maxZ;
+    final float cellSize;
+    final int numCellsX, numCellsY, numCellsZ;
+    // Obstacles of cell c are cellObstacles[cellStart[c]] ... cellObstacles[cellStart[c + 1] - 1]
+    final int[] cellStart;
+    final int[] cellObstacles;
+
+    public GridConfigurationSpace(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
+        this(sphericalAgentDescription, sphericalObstacles, averageInflatedDiameter(sphericalAgentDescription, sphericalObstacles));
+    }
+
+    public GridConfigurationSpace(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles, float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size should be positive");
+        }
+        this.sphericalAgentDescription = sphericalAgentDescription;
+
+        int n = sphericalObstacles.size();
+        centerX = new float[n];
+        centerY = new float[n];
+        centerZ = new float[n];
+        radius = new float[n];
+        float loX = Float.MAX_VALUE, loY = Float.MAX_VALUE, loZ = Float.MAX_VALUE;
+        float hiX = -Float.MAX_VALUE, hiY = -Float.MAX_VALUE, hiZ = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            SphericalObstacle o = sphericalObstacles.get(i);
+            centerX[i] = o.center.x;
+            centerY[i] = o.center.y;
+            centerZ[i] = o.center.z;
+            radius[i] = o.radius + sphericalAgentDescription.radius;
+            loX = Math.min(loX, centerX[i] - radius[i]);
+            loY = Math.min(loY, centerY[i] - radius[i]);
+            loZ = Math.min(loZ, centerZ[i] - radius[i]);
+            hiX = Math.max(hiX, centerX[i] + radius[i]);
+            hiY = Math.max(hiY, centerY[i] + radius[i]);
+            hiZ = Math.max(hiZ, centerZ[i] + radius[i]);
+        }
+        if (n == 0) {
+            loX = loY = loZ = 0;
+            hiX = hiY = hiZ = 0;
+        }
+        minX = loX;
+        minY = loY;
+        minZ = loZ;
+        maxX = hiX;
+        maxY = hiY;
+        maxZ = hiZ;
+
+        // Grow cells until the grid fits in memory budget, without obstacles the grid is one empty cell at the origin
+        float size = n == 0 ? 1 : cellSize;
+        while ((long) cellCount(hiX - loX, size) * cellCount(hiY - loY, size) * cellCount(hiZ - loZ, size) > MAX_CELLS) {
+            size *= 2;
+        }
+        this.cellSize = size;
+        numCellsX = cellCount(hiX - loX, size);
+        numCellsY = cellCount(hiY - loY, size);
+        numCellsZ = cellCount(hiZ - loZ, size);
+
+        // Counting sort of (cell, obstacle) pairs, first pass counts, second pass fills
+        cellStart = new int[numCellsX * numCellsY * numCellsZ + 1];
+        for (int i = 0; i < n; i++) {
+            forEachOverlappedCell(i, cell -> cellStart[cell + 1]++);
+        }
+        for (int c = 0; c < cellStart.length - 1; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellObstacles = new int[cellStart[cellStart.length - 1]];
+        int[] fill = new int[cellStart.length - 1];
+        for (int i = 0; i < n; i++) {
+            final int obstacle = i;
+            forEachOverlappedCell(i, cell -> cellObstacles[cellStart[cell] + fill[cell]++] = obstacle);
+        }
+
+        System.out.println("Grid created, " + numCellsX + "x" + numCellsY + "x" + numCellsZ
+                + " cells of size " + this.cellSize + ", #entries = " + cellObstacles.length);
+    }
+
+    // NaN without obstacles, which the empty grid does not use
+    private static float averageInflatedDiameter(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
+        float sum = 0;
+        for (SphericalObstacle o : sphericalObstacles) {
+            sum += 2 * (o.radius + sphericalAgentDescription.radius);
+        }
+        return sum / sphericalObstacles.size();
+    }
+
+    private static int cellCount(float extent, float size) {
+        return Math.max(1, (int) Math.ceil(extent / size));
+    }
+
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+
+    private void forEachOverlappedCell(int obstacle, CellConsumer consumer) {
+        int x0 = cellX(centerX[obstacle] - radius[obstacle]), x1 = cellX(centerX[obstacle] + radius[obstacle]);
+        int y0 = cellY(centerY[obstacle] - radius[obstacle]), y1 = cellY(centerY[obstacle] + radius[obstacle]);
+        int z0 = cellZ(centerZ[obstacle] - radius[obstacle]), z1 = cellZ(centerZ[obstacle] + radius[obstacle]);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    consumer.accept(cellIndex(x, y, z));
+                }
+            }
+        }
+    }
+
+    private int cellX(float x) {
+        return clamp((int) ((x - minX) / cellSize), numCellsX);
+    }
+
+    private int cellY(float y) {
+        return clamp((int) ((y - minY) / cellSize), numCellsY);
+    }
+
+    private int cellZ(float z) {
+        return clamp((int) ((z - minZ) / cellSize), numCellsZ);
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : (i >= n ? n - 1 : i);
+    }
+
+    private int cellIndex(int x, int y, int z) {
+        return (x * numCellsY + y) * numCellsZ + z;
+    }
+
+    private boolean isOutsideGrid(Vec3 p) {
+        return p.x < minX || p.x > maxX || p.y < minY || p.y > maxY || p.z < minZ || p.z > maxZ;
+    }
+
+    protected boolean vertexIntersectsSomeObstacle(Vec3 p) {
+        if (isOutsideGrid(p)) {
+            return false;
+        }
+        int cell = cellIndex(cellX(p.x), cellY(p.y), cellZ(p.z));
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int o = cellObstacles[k];
+            if (Intersection.doesPointIntersectSphere(p.x, p.y, p.z, centerX[o], centerY[o], centerZ[o], radius[o])) {
+                return traversed(true, 1, k - cellStart[cell] + 1);
+            }
+        }
+        return traversed(false, 1, cellStart[cell + 1] - cellStart[cell]);
+    }
+
+    // Parameter at which segment crosses the next cell boundary along one axis
+    private float nextBoundary(float o, float d, float lo, int cell) {
+        if (d > 0) {
+            return (lo + (cell + 1) * cellSize - o) / d;
+        }
+        if (d < 0) {
+            return (lo + cell * cellSize - o) / d;
+        }
+        return Float.MAX_VALUE;
+    }
+
+    private float boundaryDelta(float d) {
+        return d == 0 ? Float.MAX_VALUE : cellSize / Math.abs(d);
+    }
+
+    protected boolean edgeIntersectsSomeObstacle(Vec3 p1, Vec3 p2) {
+        return doesEdgeIntersectSomeObstacle(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z);
+    }
+
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        checkEdgeChunks(count, invalidOut, (from, to, invalidWords) -> {
+            for (int e = from; e < to; e++) {
+                if (doesEdgeIntersectSomeObstacle(starts[3 * e], starts[3 * e + 1], starts[3 * e + 2],
+                        ends[3 * e], ends[3 * e + 1], ends[3 * e + 2])) {
+                    invalidWords[e >>> 6] |= 1L << e;
+                }
+            }
+        });
+    }
+
+    private boolean doesEdgeIntersectSomeObstacle(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float dz = z2 - z1;
+
+        // Clip segment against grid bounds, t in [tEnter, tExit]
+        float tEnter = Math.max(0, Math.max(Intersection.slabEnter(x1, dx, minX, maxX),
+                Math.max(Intersection.slabEnter(y1, dy, minY, maxY), Intersection.slabEnter(z1, dz, minZ, maxZ))));
+        float tExit = Math.min(1, Math.min(Intersection.slabExit(x1, dx, minX, maxX),
+                Math.min(Intersection.slabExit(y1, dy, minY, maxY), Intersection.slabExit(z1, dz, minZ, maxZ))));
+        if (tEnter > tExit) {
+            return false;
+        }
+
+        // 3D DDA over the cells crossed by clipped segment
+        int x = cellX(x1 + tEnter * dx);
+        int y = cellY(y1 + tEnter * dy);
+        int z = cellZ(z1 + tEnter * dz);
+        int lastX = cellX(x1 + tExit * dx);
+        int lastY = cellY(y1 + tExit * dy);
+        int lastZ = cellZ(z1 + tExit * dz);
+        int stepX = (int) Math.signum(dx);
+        int stepY = (int) Math.signum(dy);
+        int stepZ = (int) Math.signum(dz);
+        float tMaxX = nextBoundary(x1, dx, minX, x);
+        float tMaxY = nextBoundary(y1, dy, minY, y);
+        float tMaxZ = nextBoundary(z1, dz, minZ, z);
+        float tDeltaX = boundaryDelta(dx);
+        float tDeltaY = boundaryDelta(dy);
+        float tDeltaZ = boundaryDelta(dz);
+
+        int maxSteps = numCellsX + numCellsY + numCellsZ;
+        int numCellsVisited = 0;
+        int numLeafTests = 0;
+        for (int s = 0; s <= maxSteps; s++) {
+            int cell = cellIndex(x, y, z);
+            numCellsVisited++;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                int o = cellObstacles[k];
+                numLeafTests++;
+                if (Intersection.doesSegmentIntersectSphere(x1, y1, z1, x2, y2, z2,
+                        centerX[o], centerY[o], centerZ[o], radius[o])) {
+                    return traversed(true, numCellsVisited, numLeafTests);
+                }
+            }
+            if (x == lastX && y == lastY && z == lastZ) {
+                break;
+            }
+            // Advance along the axis whose cell boundary is crossed first
+            if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+                if (tMaxX > tExit) {
+                    break;
+                }
+                x += stepX;
+                tMaxX += tDeltaX;
+                if (x < 0 || x >= numCellsX) {
+                    break;
+                }
+            } else if (tMaxY < tMaxZ) {
+                if (tMaxY > tExit) {
+                    break;
+                }
+                y += stepY;
+                tMaxY += tDeltaY;
+                if (y < 0 || y >= numCellsY) {
+                    break;
+                }
+            } else {
+                if (tMaxZ > tExit) {
+                    break;
+                }
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+                if (z < 0 || z >= numCellsZ) {
+                    break;
+                }
+            }
+        }
+        return traversed(false, numCellsVisited, numLeafTests);
+    }
+
+    public void draw() {
+    }
+}
@@ -0,0 +1,56 @@
+package robot.sensing;
+
+// Allocation free intersection tests shared by configuration spaces
+// Only squared distances are compared, no square roots are taken
+public final class Intersection {
+    private Intersection() {
+    }
+
+    public static boolean doesPointIntersectSphere(float px, float py, float pz,
+                                                   float cx, float cy, float cz, float radius) {
+        float dx = px - cx;
+        float dy = py - cy;
+        float dz = pz - cz;
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+
+    // Segment intersects sphere iff the point on segment closest to the center lies inside the sphere
+    public static boolean doesSegmentIntersectSphere(float x1, float y1, float z1,
+                                                     float x2, float y2, float z2,
+                                                     float cx, float cy, float cz, float radius) {
+        return distanceSquaredFromSegment(x1, y1, z1, x2, y2, z2, cx, cy, cz) <= radius * radius;
+    }
+
+    public static float distanceSquaredFromSegment(float x1, float y1, float z1,
+                                                   float x2, float y2, float z2,
+                                                   float px, float py, float pz) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float dz = z2 - z1;
+        float lengthSquared = dx * dx + dy * dy + dz * dz;
+        float t = 0;
+        if (lengthSquared > 0) {
+            t = ((px - x1) * dx + (py - y1) * dy + (pz - z1) * dz) / lengthSquared;
+            t = t < 0 ? 0 : (t > 1 ? 1 : t);
+        }
+        float ex = x1 + t * dx - px;
+        float ey = y1 + t * dy - py;
+        float ez = z1 + t * dz - pz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+
+    // Slab clipping along one axis, parameter where segment enters/exits [lo, hi]
+    static float slabEnter(float o, float d, float lo, float hi) {
+        if (d == 0) {
+            return o < lo || o > hi ? Float.MAX_VALUE : -Float.MAX_VALUE;
+        }
+        return Math.min((lo - o) / d, (hi - o) / d);
+    }
+
+    static float slabExit(float o, float d, float lo, float hi) {
+        if (d == 0) {
+            return o < lo || o > hi ? -Float.MAX_VALUE : Float.MAX_VALUE;
+        }
+        return Math.max((lo - o) / d, (hi - o) / d);
+    }
+}
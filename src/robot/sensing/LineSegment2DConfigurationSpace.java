@@ -1,112 +1,80 @@
 package robot.sensing;
 
+import graphics.Canvas;
+import math.RandomSource;
 import math.Vec3;
 import robot.input.LineSegment2DAgentDescription;
+import robot.input.SphericalAgentDescription;
 import fixed.SphericalObstacle;
-import processing.core.PApplet;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class LineSegment2DConfigurationSpace extends ConfigurationSpace {
-    final PApplet parent;
+    // Edges passing closer than this to an obstacle are reported as colliding, so that advancement terminates
+    public static float MIN_CLEARANCE = 1e-3f;
+
     final LineSegment2DAgentDescription description;
     final List<SphericalObstacle> sphericalObstacles;
     public final float orientationScale;
+    // Bounding sphere hierarchy over the obstacles, not inflated
+    final BSHConfigurationSpace obstacleIndex;
 
-    public LineSegment2DConfigurationSpace(PApplet parent, LineSegment2DAgentDescription description, List<SphericalObstacle> sphericalObstacles, float orientationScale) {
-        this.parent = parent;
+    public LineSegment2DConfigurationSpace(LineSegment2DAgentDescription description, List<SphericalObstacle> sphericalObstacles, float orientationScale) {
         this.description = description;
         this.sphericalObstacles = sphericalObstacles;
         this.orientationScale = orientationScale;
+        this.obstacleIndex = new BSHConfigurationSpace(
+                Canvas.HEADLESS,
+                RandomSource.seeded(0),
+                new SphericalAgentDescription(description.startPose, description.finishPose, 0),
+                sphericalObstacles
+        );
     }
 
-    public boolean doesVertexIntersectSomeObstacle(final Vec3 pose) {
-        Vec3 p1Position = Vec3.of(pose);
-        p1Position.x = 0;
-        Vec3 p2Position = Vec3.of(pose);
-        p2Position.x = 0;
-        Vec3 halfLength = Vec3.of(0, (float) (Math.sin(pose.x / orientationScale) * description.length / 2), (float) (Math.cos(pose.x / orientationScale) * description.length / 2));
-        p1Position.minusInPlace(halfLength);
-        p2Position.plusInPlace(halfLength);
-
-        for (SphericalObstacle sphericalObstacle : sphericalObstacles) {
-            if (p1Position.minus(sphericalObstacle.center).norm() <= sphericalObstacle.radius
-                    || p2Position.minus(sphericalObstacle.center).norm() <= sphericalObstacle.radius) {
-                return true;
-            }
-            Vec3 pb_pa = p2Position.minus(p1Position);
-            Vec3 pa_pc = p1Position.minus(sphericalObstacle.center);
-            float r = sphericalObstacle.radius;
-            float a = pb_pa.dot(pb_pa);
-            float c = pa_pc.dot(pa_pc) - r * r;
-            float b = 2 * pb_pa.dot(pa_pc);
-            float discriminant = b * b - 4 * a * c;
-            if (discriminant >= 0) {
-                float t1 = (float) ((-b + Math.sqrt(discriminant)) / (2 * a));
-                float t2 = (float) ((-b - Math.sqrt(discriminant)) / (2 * a));
-                // Intersection with line segment only possible iff at least one of the solutions lies in [0, 1]
-                if ((0 <= t1 && t1 <= 1) || (0 <= t2 && t2 <= 1)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
-    }
-
-    public boolean doesEdgeIntersectSomeObstacle(Vec3 p1, Vec3 p2) {
-        return false;
+    protected boolean vertexIntersectsSomeObstacle(final Vec3 pose) {
+        // End points of line segment, pose is (orientation * orientationScale, y, z)
+        float halfLengthY = (float) (Math.sin(pose.x / orientationScale) * description.length / 2);
+        float halfLengthZ = (float) (Math.cos(pose.x / orientationScale) * description.length / 2);
+        return obstacleIndex.linearHierarchy().doesEdgeIntersectSomeLeaf(
+                0, pose.y - halfLengthY, pose.z - halfLengthZ,
+                0, pose.y + halfLengthY, pose.z + halfLengthZ, 0, stats);
     }
 
-    public boolean doesEdgeIntersectSomeObstacleStricter(Vec3 pose1, Vec3 pose2) {
-        // Considers a bounding sphere of the line centered at center of line and radius as length / 2
-        // Checks for collision of bounding sphere and obstacles
-        // This always returns true when there is a collision
-        // But there can be a case where there is no true collision but this return true
-        // A loss occurs in that case
-        Vec3 center1 = Vec3.of(pose1);
-        center1.x = 0;
-        Vec3 center2 = Vec3.of(pose2);
-        center2.x = 0;
+    // Conservative advancement along the straight line between two poses
+    // No point of the segment moves faster than |center velocity| + length / 2 * |angular velocity|,
+    // so the segment can advance by its clearance divided by that bound without touching any obstacle
+    protected boolean edgeIntersectsSomeObstacle(Vec3 pose1, Vec3 pose2) {
+        LinearBoundingSphereHierarchy hierarchy = obstacleIndex.linearHierarchy();
+        float dy = pose2.y - pose1.y;
+        float dz = pose2.z - pose1.z;
+        float dTheta = (pose2.x - pose1.x) / orientationScale;
+        float maxSpeed = (float) Math.sqrt(dy * dy + dz * dz) + Math.abs(dTheta) * description.length / 2;
 
-//        parent.pushMatrix();
-//        parent.stroke(0, 0, 1);
-//        parent.noFill();
-//        parent.translate(center1.x, center1.y, center1.z);
-//        parent.sphere(description.length / 2);
-//        parent.popMatrix();
-//
-//        parent.pushMatrix();
-//        parent.stroke(0, 1, 0);
-//        parent.noFill();
-//        parent.translate(center2.x, center2.y, center2.z);
-//        parent.sphere(description.length / 2);
-//        parent.popMatrix();
-
-        for (SphericalObstacle sphericalObstacle : sphericalObstacles) {
-            if (center1.minus(sphericalObstacle.center).norm() <= sphericalObstacle.radius + description.length / 2
-                    || center2.minus(sphericalObstacle.center).norm() <= sphericalObstacle.radius + description.length / 2) {
+        // Every step advances t by at least MIN_CLEARANCE / maxSpeed, so the end is reached within this many steps,
+        // one more for rounding, t is a double so that such small steps are not lost
+        long maxSteps = (long) Math.ceil(maxSpeed / MIN_CLEARANCE) + 2;
+        double t = 0;
+        for (long step = 0; step < maxSteps; step++) {
+            float theta = (float) (pose1.x / orientationScale + t * dTheta);
+            float y = (float) (pose1.y + t * dy);
+            float z = (float) (pose1.z + t * dz);
+            float halfLengthY = (float) (Math.sin(theta) * description.length / 2);
+            float halfLengthZ = (float) (Math.cos(theta) * description.length / 2);
+            // Clearance beyond what the rest of the motion can cover does not matter
+            float remaining = (float) (maxSpeed * (1 - t));
+            float clearance = hierarchy.distanceToNearestLeaf(
+                    0, y - halfLengthY, z - halfLengthZ,
+                    0, y + halfLengthY, z + halfLengthZ,
+                    remaining + MIN_CLEARANCE, 0, stats);
+            if (clearance < MIN_CLEARANCE) {
                 return true;
             }
-            Vec3 pb_pa = center2.minus(center1);
-            Vec3 pa_pc = center1.minus(sphericalObstacle.center);
-            float r = sphericalObstacle.radius + description.length / 2;
-            float a = pb_pa.dot(pb_pa);
-            float c = pa_pc.dot(pa_pc) - r * r;
-            float b = 2 * pb_pa.dot(pa_pc);
-            float discriminant = b * b - 4 * a * c;
-            if (discriminant >= 0) {
-                float t1 = (float) ((-b + Math.sqrt(discriminant)) / (2 * a));
-                float t2 = (float) ((-b - Math.sqrt(discriminant)) / (2 * a));
-                // Intersection with line segment only possible iff at least one of the solutions lies in [0, 1]
-                if ((0 <= t1 && t1 <= 1) || (0 <= t2 && t2 <= 1)) {
-                    return true;
-                }
+            if (clearance >= remaining) {
+                return false;
             }
+            t += clearance / maxSpeed;
         }
-
-        return false;
+        return true;
     }
 
     public void draw() {
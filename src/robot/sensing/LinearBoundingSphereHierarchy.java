@@ -0,0 +1,183 @@
+package robot.sensing;
+
+// Bounding sphere hierarchy flattened into arrays in depth first (pre) order
+// The first child of node i (if any) is node i + 1, skip[i] is the node right after the subtree of i
+// Leaves are exactly the nodes with skip[i] == i + 1
+// Radii are not inflated, queries take the inflation (agent radius) instead so that agents of any size share one hierarchy
+// A sphere bounding its children still bounds them after inflating all of them by the same amount
+class LinearBoundingSphereHierarchy {
+    final int size;
+    final float[] centerX;
+    final float[] centerY;
+    final float[] centerZ;
+    final float[] radius;
+    final int[] skip;
+
+    // root can be null for an empty hierarchy
+    LinearBoundingSphereHierarchy(BoundingSphere root) {
+        this.size = root == null ? 0 : countNodes(root);
+        this.centerX = new float[size];
+        this.centerY = new float[size];
+        this.centerZ = new float[size];
+        this.radius = new float[size];
+        this.skip = new int[size];
+        if (root != null) {
+            write(root, 0);
+        }
+    }
+
+    private static int countNodes(BoundingSphere sphere) {
+        int count = 1;
+        for (BoundingSphere child : sphere.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    // Writes subtree at index, returns index after subtree
+    private int write(BoundingSphere sphere, int index) {
+        centerX[index] = sphere.center.x;
+        centerY[index] = sphere.center.y;
+        centerZ[index] = sphere.center.z;
+        radius[index] = sphere.radius;
+        int next = index + 1;
+        for (BoundingSphere child : sphere.children) {
+            next = write(child, next);
+        }
+        skip[index] = next;
+        return next;
+    }
+
+    // Queries take the stats of the configuration space they answer for, null when instrumentation is disabled
+
+    boolean doesVertexIntersectSomeLeaf(float px, float py, float pz, float inflation, QueryStats stats) {
+        int numNodesVisited = 0;
+        int numLeafTests = 0;
+        int i = 0;
+        while (i < size) {
+            numNodesVisited++;
+            boolean isLeaf = skip[i] == i + 1;
+            if (isLeaf) {
+                numLeafTests++;
+            }
+            if (Intersection.doesPointIntersectSphere(px, py, pz, centerX[i], centerY[i], centerZ[i], radius[i] + inflation)) {
+                if (isLeaf) {
+                    return traversed(stats, true, numNodesVisited, numLeafTests);
+                }
+                // descend into first child
+                i++;
+            } else {
+                // skip whole subtree
+                i = skip[i];
+            }
+        }
+        return traversed(stats, false, numNodesVisited, numLeafTests);
+    }
+
+    boolean doesEdgeIntersectSomeLeaf(float x1, float y1, float z1, float x2, float y2, float z2, float inflation, QueryStats stats) {
+        int numNodesVisited = 0;
+        int numLeafTests = 0;
+        int i = 0;
+        while (i < size) {
+            numNodesVisited++;
+            boolean isLeaf = skip[i] == i + 1;
+            if (isLeaf) {
+                numLeafTests++;
+            }
+            if (Intersection.doesSegmentIntersectSphere(x1, y1, z1, x2, y2, z2, centerX[i], centerY[i], centerZ[i], radius[i] + inflation)) {
+                if (isLeaf) {
+                    return traversed(stats, true, numNodesVisited, numLeafTests);
+                }
+                i++;
+            } else {
+                i = skip[i];
+            }
+        }
+        return traversed(stats, false, numNodesVisited, numLeafTests);
+    }
+
+    private static boolean traversed(QueryStats stats, boolean isHit, int numNodesVisited, int numLeafTests) {
+        if (stats != null) {
+            stats.recordTraversal(numNodesVisited, numLeafTests);
+        }
+        return isHit;
+    }
+
+    // Distance from segment to the surface of the nearest leaf, negative if inside, or maxDistance if all leaves are farther
+    float distanceToNearestLeaf(float x1, float y1, float z1, float x2, float y2, float z2, float maxDistance, float inflation, QueryStats stats) {
+        int numNodesVisited = 0;
+        int numLeafTests = 0;
+        float nearest = maxDistance;
+        int i = 0;
+        while (i < size) {
+            numNodesVisited++;
+            // Lower bound on the distance to every leaf in the subtree of i
+            float distance = (float) Math.sqrt(Intersection.distanceSquaredFromSegment(x1, y1, z1, x2, y2, z2,
+                    centerX[i], centerY[i], centerZ[i])) - radius[i] - inflation;
+            if (distance >= nearest) {
+                i = skip[i];
+            } else if (skip[i] == i + 1) {
+                numLeafTests++;
+                nearest = distance;
+                i = skip[i];
+            } else {
+                i++;
+            }
+        }
+        traversed(stats, false, numNodesVisited, numLeafTests);
+        return nearest;
+    }
+
+    // Edges in [from, to) of a batch laid out as in ConfigurationSpace.checkEdges, from must be a multiple of 64
+    // Each bundle of 64 consecutive edges traverses the hierarchy together, a node is tested only against
+    // the edges of the bundle that hit its parent, and each subtree is skipped once no such edge is left
+    // Leaf tests count edges tested against a leaf, not leaves
+    void checkEdges(float[] starts, float[] ends, int from, int to, long[] invalidWords, float inflation, QueryStats stats) {
+        if (size == 0) {
+            return;
+        }
+        EdgeBundle bundle = new EdgeBundle();
+        // Every node is pushed at most once per bundle
+        int[] nodeStack = new int[size];
+        long[] maskStack = new long[size];
+        int numNodesVisited = 0;
+        int numLeafTests = 0;
+        for (int bundleStart = from; bundleStart < to; bundleStart += 64) {
+            bundle.load(starts, ends, bundleStart, Math.min(64, to - bundleStart));
+            long invalid = 0;
+            int top = 0;
+            nodeStack[top] = 0;
+            maskStack[top] = bundle.all;
+            top++;
+            while (top > 0 && invalid != bundle.all) {
+                top--;
+                int i = nodeStack[top];
+                long mask = maskStack[top] & ~invalid;
+                boolean isLeaf = skip[i] == i + 1;
+                numNodesVisited++;
+                if (isLeaf) {
+                    numLeafTests += Long.bitCount(mask);
+                }
+                // Inner nodes containing the whole bundle pass all edges down without testing each of them
+                float r = radius[i] + inflation;
+                long hit = !isLeaf && bundle.isInsideSphere(centerX[i], centerY[i], centerZ[i], r)
+                        ? mask
+                        : bundle.intersectSphere(mask, centerX[i], centerY[i], centerZ[i], r);
+                if (hit == 0) {
+                    continue;
+                }
+                if (isLeaf) {
+                    invalid |= hit;
+                    continue;
+                }
+                for (int child = i + 1; child < skip[i]; child = skip[child]) {
+                    nodeStack[top] = child;
+                    maskStack[top] = hit;
+                    top++;
+                }
+            }
+            invalidWords[bundleStart >>> 6] |= invalid;
+        }
+        traversed(stats, false, numNodesVisited, numLeafTests);
+    }
+}
@@ -3,57 +3,61 @@ package robot.sensing;
 import math.Vec3;
 import robot.input.SphericalAgentDescription;
 import fixed.SphericalObstacle;
-import processing.core.PApplet;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class PlainConfigurationSpace extends ConfigurationSpace {
-    final PApplet parent;
     final SphericalAgentDescription sphericalAgentDescription;
     final List<SphericalObstacle> sphericalObstacles;
 
-    public PlainConfigurationSpace(PApplet parent, SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
-        this.parent = parent;
+    public PlainConfigurationSpace(SphericalAgentDescription sphericalAgentDescription, List<SphericalObstacle> sphericalObstacles) {
         this.sphericalAgentDescription = sphericalAgentDescription;
         this.sphericalObstacles = sphericalObstacles;
     }
 
-    public boolean doesVertexIntersectSomeObstacle(Vec3 p) {
-        for (SphericalObstacle sphericalObstacle : sphericalObstacles) {
-            if (p.minus(sphericalObstacle.center).norm() <= sphericalObstacle.radius + sphericalAgentDescription.radius) {
-                return true;
+    protected boolean vertexIntersectsSomeObstacle(Vec3 p) {
+        // Indexed loop, an iterator would be allocated per query
+        for (int i = 0; i < sphericalObstacles.size(); i++) {
+            SphericalObstacle o = sphericalObstacles.get(i);
+            if (Intersection.doesPointIntersectSphere(p.x, p.y, p.z,
+                    o.center.x, o.center.y, o.center.z, o.radius + sphericalAgentDescription.radius)) {
+                return traversed(true, 0, i + 1);
             }
         }
-        return false;
+        return traversed(false, 0, sphericalObstacles.size());
     }
 
-    private boolean doesVertexIntersectThisSphere(final Vec3 p, final SphericalObstacle node) {
-        return p.minus(node.center).norm() <= node.radius + sphericalAgentDescription.radius;
+    protected boolean edgeIntersectsSomeObstacle(Vec3 p1, Vec3 p2) {
+        for (int i = 0; i < sphericalObstacles.size(); i++) {
+            SphericalObstacle o = sphericalObstacles.get(i);
+            if (Intersection.doesSegmentIntersectSphere(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z,
+                    o.center.x, o.center.y, o.center.z, o.radius + sphericalAgentDescription.radius)) {
+                return traversed(true, 0, i + 1);
+            }
+        }
+        return traversed(false, 0, sphericalObstacles.size());
     }
 
-    public boolean doesEdgeIntersectSomeObstacle(Vec3 p1, Vec3 p2) {
-        for (SphericalObstacle sphericalObstacle : sphericalObstacles) {
-            if (doesVertexIntersectThisSphere(p1, sphericalObstacle) || doesVertexIntersectThisSphere(p2, sphericalObstacle)) {
-                return true;
-            }
-            Vec3 pb_pa = p2.minus(p1);
-            Vec3 pa_pc = p1.minus(sphericalObstacle.center);
-            float r = sphericalObstacle.radius + sphericalAgentDescription.radius;
-            float a = pb_pa.dot(pb_pa);
-            float c = pa_pc.dot(pa_pc) - r * r;
-            float b = 2 * pb_pa.dot(pa_pc);
-            float discriminant = b * b - 4 * a * c;
-            if (discriminant >= 0) {
-                float t1 = (float) ((-b + Math.sqrt(discriminant)) / (2 * a));
-                float t2 = (float) ((-b - Math.sqrt(discriminant)) / (2 * a));
-                // Intersection with line segment only possible iff at least one of the solutions lies in [0, 1]
-                if ((0 <= t1 && t1 <= 1) || (0 <= t2 && t2 <= 1)) {
-                    return true;
+    // Bundles of 64 edges are tested against one obstacle at a time, obstacles far from the whole bundle are
+    // rejected with a single test
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        checkEdgeChunks(count, invalidOut, (from, to, invalidWords) -> {
+            EdgeBundle bundle = new EdgeBundle();
+            int numLeafTests = 0;
+            for (int bundleStart = from; bundleStart < to; bundleStart += 64) {
+                bundle.load(starts, ends, bundleStart, Math.min(64, to - bundleStart));
+                long invalid = 0;
+                for (int i = 0; i < sphericalObstacles.size() && invalid != bundle.all; i++) {
+                    SphericalObstacle o = sphericalObstacles.get(i);
+                    numLeafTests += Long.bitCount(bundle.all & ~invalid);
+                    invalid |= bundle.intersectSphere(bundle.all & ~invalid,
+                            o.center.x, o.center.y, o.center.z, o.radius + sphericalAgentDescription.radius);
                 }
+                invalidWords[bundleStart >>> 6] |= invalid;
             }
-        }
-        return false;
+            traversed(false, 0, numLeafTests);
+        });
     }
 
     public void draw() {
@@ -0,0 +1,176 @@
+package robot.sensing;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of a configuration space with instrumentation enabled, safe to update from parallel edge checks
+// Nodes are whatever the index walks through (BSH spheres, grid cells, distance field lookups),
+// leaf tests are exact tests against single obstacles
+public class QueryStats {
+    // Bucket b counts queries that took [2^(b - 1), 2^b) ns, bucket 0 counts 0 ns
+    public static final int NUM_LATENCY_BUCKETS = 40;
+
+    final LongAdder vertexQueries = new LongAdder();
+    final LongAdder vertexHits = new LongAdder();
+    final LongAdder edgeQueries = new LongAdder();
+    final LongAdder edgeHits = new LongAdder();
+    final LongAdder nodesVisited = new LongAdder();
+    final LongAdder leafTests = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final LongAdder[] latencyBuckets = new LongAdder[NUM_LATENCY_BUCKETS];
+
+    public QueryStats() {
+        for (int b = 0; b < NUM_LATENCY_BUCKETS; b++) {
+            latencyBuckets[b] = new LongAdder();
+        }
+    }
+
+    private void recordLatency(long nanos, long count) {
+        int bucket = Math.min(NUM_LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+        latencyBuckets[bucket].add(count);
+        totalNanos.add(nanos * count);
+    }
+
+    void recordVertexQuery(boolean isHit, long nanos) {
+        vertexQueries.increment();
+        if (isHit) {
+            vertexHits.increment();
+        }
+        recordLatency(nanos, 1);
+    }
+
+    void recordEdgeQuery(boolean isHit, long nanos) {
+        edgeQueries.increment();
+        if (isHit) {
+            edgeHits.increment();
+        }
+        recordLatency(nanos, 1);
+    }
+
+    // Edges of a batch are recorded with the mean latency of the batch
+    void recordEdgeBatch(int count, int numHits, long nanos) {
+        if (count == 0) {
+            return;
+        }
+        edgeQueries.add(count);
+        edgeHits.add(numHits);
+        recordLatency(nanos / count, count);
+    }
+
+    void recordTraversal(int numNodesVisited, int numLeafTests) {
+        nodesVisited.add(numNodesVisited);
+        leafTests.add(numLeafTests);
+    }
+
+    public long vertexQueries() {
+        return vertexQueries.sum();
+    }
+
+    public long vertexHits() {
+        return vertexHits.sum();
+    }
+
+    public long edgeQueries() {
+        return edgeQueries.sum();
+    }
+
+    public long edgeHits() {
+        return edgeHits.sum();
+    }
+
+    public long queries() {
+        return vertexQueries() + edgeQueries();
+    }
+
+    public long nodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    public long leafTests() {
+        return leafTests.sum();
+    }
+
+    public float vertexHitRatio() {
+        return ratio(vertexHits(), vertexQueries());
+    }
+
+    public float edgeHitRatio() {
+        return ratio(edgeHits(), edgeQueries());
+    }
+
+    public float nodesVisitedPerQuery() {
+        return ratio(nodesVisited(), queries());
+    }
+
+    public float leafTestsPerQuery() {
+        return ratio(leafTests(), queries());
+    }
+
+    public float meanLatencyNanos() {
+        return ratio(totalNanos.sum(), queries());
+    }
+
+    private static float ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : numerator / (float) denominator;
+    }
+
+    public long[] latencyHistogram() {
+        long[] histogram = new long[NUM_LATENCY_BUCKETS];
+        for (int b = 0; b < NUM_LATENCY_BUCKETS; b++) {
+            histogram[b] = latencyBuckets[b].sum();
+        }
+        return histogram;
+    }
+
+    // Upper end of the histogram bucket containing the given fraction of queries, e.g. 0.99 for p99
+    public long latencyPercentileNanos(float fraction) {
+        long[] histogram = latencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long seen = 0;
+        for (int b = 0; b < NUM_LATENCY_BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen > 0 && seen >= fraction * total) {
+                return 1L << b;
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        vertexQueries.reset();
+        vertexHits.reset();
+        edgeQueries.reset();
+        edgeHits.reset();
+        nodesVisited.reset();
+        leafTests.reset();
+        totalNanos.reset();
+        for (LongAdder bucket : latencyBuckets) {
+            bucket.reset();
+        }
+    }
+
+    public String summary() {
+        return "vertex queries = " + vertexQueries() + " (hit ratio " + vertexHitRatio() + ")"
+                + ", edge queries = " + edgeQueries() + " (hit ratio " + edgeHitRatio() + ")"
+                + ", nodes visited / query = " + nodesVisitedPerQuery()
+                + ", leaf tests / query = " + leafTestsPerQuery()
+                + ", mean latency = " + meanLatencyNanos() + " ns"
+                + ", p50 < " + latencyPercentileNanos(0.5f) + " ns"
+                + ", p99 < " + latencyPercentileNanos(0.99f) + " ns";
+    }
+
+    // Prints summary every period on a daemon thread until the returned timer is cancelled
+    public Timer dumpEvery(String label, long periodMillis) {
+        Timer timer = new Timer("QueryStats dump " + label, true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            public void run() {
+                System.out.println(label + ": " + summary());
+            }
+        }, periodMillis, periodMillis);
+        return timer;
+    }
+}
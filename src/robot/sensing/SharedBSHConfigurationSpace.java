@@ -0,0 +1,49 @@
+package robot.sensing;
+
+import math.Vec3;
+import robot.input.SphericalAgentDescription;
+
+import java.util.BitSet;
+
+// Configuration space of a spherical agent backed by the hierarchy of a BSHConfigurationSpace built for another agent
+// Agents of different radii share one hierarchy in memory, each of these only keeps its agent radius
+// Obstacles are added, removed and moved through the shared BSHConfigurationSpace
+public class SharedBSHConfigurationSpace extends ConfigurationSpace {
+    final BSHConfigurationSpace obstacleIndex;
+    final SphericalAgentDescription sphericalAgentDescription;
+    // Stamp of obstacleIndex when the stamp of this configuration space was last renewed
+    private long obstacleIndexStamp;
+
+    public SharedBSHConfigurationSpace(BSHConfigurationSpace obstacleIndex, SphericalAgentDescription sphericalAgentDescription) {
+        this.obstacleIndex = obstacleIndex;
+        this.sphericalAgentDescription = sphericalAgentDescription;
+        this.obstacleIndexStamp = obstacleIndex.stamp();
+    }
+
+    // Own stamp, so that results for different radii are not mixed up, renewed whenever the shared obstacles change
+    public synchronized long stamp() {
+        long current = obstacleIndex.stamp();
+        if (current != obstacleIndexStamp) {
+            obstacleIndexStamp = current;
+            obstaclesChanged();
+        }
+        return super.stamp();
+    }
+
+    protected boolean vertexIntersectsSomeObstacle(final Vec3 p) {
+        return obstacleIndex.linearHierarchy().doesVertexIntersectSomeLeaf(p.x, p.y, p.z, sphericalAgentDescription.radius, stats);
+    }
+
+    protected boolean edgeIntersectsSomeObstacle(final Vec3 p1, final Vec3 p2) {
+        return obstacleIndex.linearHierarchy().doesEdgeIntersectSomeLeaf(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, sphericalAgentDescription.radius, stats);
+    }
+
+    protected void edgesIntersectSomeObstacle(float[] starts, float[] ends, int count, BitSet invalidOut) {
+        LinearBoundingSphereHierarchy hierarchy = obstacleIndex.linearHierarchy();
+        checkEdgeChunks(count, invalidOut, (from, to, invalidWords) -> hierarchy.checkEdges(starts, ends, from, to, invalidWords, sphericalAgentDescription.radius, stats));
+    }
+
+    // The shared BSHConfigurationSpace draws the hierarchy
+    public void draw() {
+    }
+}